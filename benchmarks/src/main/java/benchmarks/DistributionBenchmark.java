@@ -0,0 +1,87 @@
+package benchmarks;
+
+import jade.core.AID;
+import model.DistributionAlgorithm;
+import model.DistributionMode;
+import model.DistributionOptions;
+import model.Good;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Полный запуск DistributionAlgorithm.distributeGoods.
+ * Полный перебор параметров долгий, поэтому обычно задается подмножество:
+ * -p size=1000,100000 -p conflicts=1 -p fleet=30 -p mode=GREEDY,COMPONENTS
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistributionBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"0", "1", "4"})
+    public double conflicts; // Среднее количество несовместимостей на товар
+
+    @Param({"3", "30", "300"})
+    public int fleet;
+
+    @Param({"GREEDY", "COMPONENTS"})
+    public DistributionMode mode;
+
+    @Param({"0.9"})
+    public double load; // Отношение суммарной грузоподъемности к весу товаров
+
+    private List<Good> manifest;
+    private List<Good> goods;
+    private Map<String, AID> vehicleAgents;
+    private Map<String, Integer> capacities;
+    private DistributionOptions options;
+    private Logger logger;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        manifest = ManifestGenerator.goods(size, conflicts, ManifestGenerator.DEFAULT_SEED);
+        capacities = ManifestGenerator.capacities(manifest, fleet, load);
+        vehicleAgents = new LinkedHashMap<>();
+        for (String vehicle : capacities.keySet()) {
+            // Вне платформы JADE доступны только полные имена агентов
+            vehicleAgents.put(vehicle, new AID(vehicle + "@benchmarks", AID.ISGUID));
+        }
+        options = new DistributionOptions();
+        options.setMode(mode);
+        // Журнал алгоритма не выводится, чтобы измерять расчет, а не консоль
+        logger = Logger.getLogger("benchmarks.distribution");
+        logger.setUseParentHandlers(false);
+        logger.setLevel(java.util.logging.Level.OFF);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyGoods() {
+        goods = ManifestGenerator.copy(manifest);
+    }
+
+    @Benchmark
+    public Map<String, List<Good>> distributeGoods() {
+        return new DistributionAlgorithm(goods, vehicleAgents, capacities, logger, options).distributeGoods();
+    }
+}
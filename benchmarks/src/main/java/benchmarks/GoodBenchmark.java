@@ -0,0 +1,101 @@
+package benchmarks;
+
+import model.ConflictIndex;
+import model.Good;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции над отдельными товарами: проверка совместимости (по индексу
+ * несовместимостей и по спискам id), нормализация id и разделение на части.
+ * Пары товаров выбираются заранее случайно по всему манифесту, поэтому
+ * на больших манифестах измерение включает промахи кэша.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoodBenchmark {
+    private static final int PAIRS = 4096; // Степень двойки
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param({"1", "4"})
+    public double conflicts;
+
+    private Good[] indexedFirst;
+    private Good[] indexedSecond;
+    private Good[] plainFirst;
+    private Good[] plainSecond;
+    private String[] ids;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        List<Good> indexed = ManifestGenerator.goods(size, conflicts, ManifestGenerator.DEFAULT_SEED);
+        ConflictIndex.build(indexed);
+        List<Good> plain = ManifestGenerator.copy(indexed);
+
+        Random random = new Random(ManifestGenerator.DEFAULT_SEED);
+        indexedFirst = new Good[PAIRS];
+        indexedSecond = new Good[PAIRS];
+        plainFirst = new Good[PAIRS];
+        plainSecond = new Good[PAIRS];
+        ids = new String[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            int first = random.nextInt(size);
+            int second = random.nextInt(size);
+            indexedFirst[i] = indexed.get(first);
+            indexedSecond[i] = indexed.get(second);
+            plainFirst[i] = plain.get(first);
+            plainSecond[i] = plain.get(second);
+            ids[i] = random.nextBoolean() ? plain.get(first).getId() : plain.get(first).getId() + "_part" + (i & 3);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (PAIRS - 1);
+    }
+
+    @Benchmark
+    public boolean isCompatibleWithIndexed() {
+        int i = next();
+        return indexedFirst[i].isCompatibleWith(indexedSecond[i]);
+    }
+
+    @Benchmark
+    public boolean isCompatibleWithLists() {
+        int i = next();
+        return plainFirst[i].isCompatibleWith(plainSecond[i]);
+    }
+
+    @Benchmark
+    public String normalizeId() {
+        int i = next();
+        return plainFirst[i].normalizeId(ids[i]);
+    }
+
+    @Benchmark
+    public List<Good> split() {
+        Good good = indexedFirst[next()];
+        int half = good.getWeight() / 2;
+        return good.split(new int[] { half, good.getWeight() - half });
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import model.Good;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Генератор синтетических манифестов для тестов производительности.
+ * Результат полностью определяется параметрами и начальным значением генератора,
+ * поэтому разные запуски и разные версии алгоритма сравниваются на одних данных.
+ */
+public final class ManifestGenerator {
+    public static final long DEFAULT_SEED = 42;
+
+    private ManifestGenerator() {
+    }
+
+    /**
+     * Генерация товаров
+     *
+     * @param size количество товаров
+     * @param conflicts среднее количество несовместимостей на товар
+     * @param seed начальное значение генератора
+     * @return список товаров; примерно каждый десятый id имеет суффикс _batchN
+     */
+    public static List<Good> goods(int size, double conflicts, long seed) {
+        Random random = new Random(seed);
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = random.nextInt(10) == 0 ? "good" + i + "_batch" + random.nextInt(4) : "good" + i;
+        }
+        List<Good> goods = new ArrayList<>(size);
+        int whole = (int) conflicts;
+        double fraction = conflicts - whole;
+        for (int i = 0; i < size; i++) {
+            int count = whole + (random.nextDouble() < fraction ? 1 : 0);
+            List<String> incompatibilities = new ArrayList<>(count);
+            for (int k = 0; k < count && size > 1; k++) {
+                int other = random.nextInt(size);
+                if (other != i) {
+                    // Несовместимости указываются по базовым id, как в goods.json
+                    incompatibilities.add("good" + other);
+                }
+            }
+            goods.add(new Good(ids[i], 1 + random.nextInt(50), incompatibilities));
+        }
+        return goods;
+    }
+
+    /**
+     * Грузоподъемности транспорта: общий вес товаров, умноженный на коэффициент,
+     * поровну на весь парк
+     *
+     * @param goods товары
+     * @param fleet количество транспорта
+     * @param load отношение суммарной грузоподъемности к весу товаров
+     */
+    public static Map<String, Integer> capacities(List<Good> goods, int fleet, double load) {
+        long total = 0;
+        for (Good good : goods) {
+            total += good.getWeight();
+        }
+        int capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(total * load / fleet)));
+        Map<String, Integer> capacities = new LinkedHashMap<>();
+        for (int i = 0; i < fleet; i++) {
+            capacities.put("Vehicle-" + i, capacity);
+        }
+        return capacities;
+    }
+
+    /**
+     * Независимая копия товаров: алгоритм изменяет отметки о распределении
+     */
+    public static List<Good> copy(List<Good> goods) {
+        List<Good> copies = new ArrayList<>(goods.size());
+        for (Good good : goods) {
+            copies.add(new Good(good.getId(), good.getWeight(), good.getIncompatibilities()));
+        }
+        return copies;
+    }
+}
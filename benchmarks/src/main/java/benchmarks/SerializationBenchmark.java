@@ -0,0 +1,101 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import model.Good;
+import model.GoodsCodec;
+import model.GoodsManifestReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пути сериализации: манифест (Gson и потоковое чтение GoodsManifestReader),
+ * результаты распределения (Gson с @Expose, как в distribution_results.json)
+ * и двоичный формат назначений GoodsCodec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final Gson GSON = new Gson();
+    private static final Gson RESULTS_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    private static final Type GOODS_TYPE = new TypeToken<List<Good>>() {}.getType();
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param({"1"})
+    public double conflicts;
+
+    @Param({"30"})
+    public int fleet;
+
+    private List<Good> goods;
+    private Map<String, List<Good>> distribution;
+    private String json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        goods = ManifestGenerator.goods(size, conflicts, ManifestGenerator.DEFAULT_SEED);
+        distribution = new HashMap<>();
+        for (int i = 0; i < goods.size(); i++) {
+            distribution.computeIfAbsent("Vehicle-" + (i % fleet), v -> new ArrayList<>()).add(goods.get(i));
+        }
+        json = GSON.toJson(goods);
+        binary = GoodsCodec.encode(goods);
+    }
+
+    @Benchmark
+    public String manifestToJson() {
+        return GSON.toJson(goods);
+    }
+
+    @Benchmark
+    public List<Good> manifestFromJson() {
+        return GSON.fromJson(json, GOODS_TYPE);
+    }
+
+    @Benchmark
+    public List<Good> manifestStreamingRead() throws IOException {
+        return new GoodsManifestReader().readAll(new StringReader(json));
+    }
+
+    @Benchmark
+    public String resultsToJson() {
+        return RESULTS_GSON.toJson(distribution);
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return GoodsCodec.encode(goods);
+    }
+
+    @Benchmark
+    public List<Good> codecDecode() {
+        return GoodsCodec.decode(binary);
+    }
+}
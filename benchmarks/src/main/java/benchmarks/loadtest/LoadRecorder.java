@@ -0,0 +1,126 @@
+package benchmarks.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Результаты нагрузочного теста, общие для всех агентов теста.
+ * Агенты работают в своих потоках, поэтому все поля потокобезопасны.
+ */
+final class LoadRecorder {
+    private final CountDownLatch clients;
+    private final ConcurrentLinkedQueue<Long> connectMicros = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> resultMicros = new ConcurrentLinkedQueue<>();     // Запуск -> результаты
+    private final ConcurrentLinkedQueue<Long> completionMicros = new ConcurrentLinkedQueue<>(); // Запуск -> завершение
+    private final Map<String, AtomicLong> jobStates = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> notifications = new ConcurrentHashMap<>();           // По темам
+    private final AtomicLong clientSent = new AtomicLong();
+    private final AtomicLong clientReceived = new AtomicLong();
+    private final Map<String, Map<String, Object>> lastStats = new ConcurrentHashMap<>();
+    private final Map<String, Long> maxQueue = new ConcurrentHashMap<>();
+
+    LoadRecorder(int clients) {
+        this.clients = new CountDownLatch(clients);
+    }
+
+    void connected(long micros) { connectMicros.add(micros); }
+    void results(long micros) { resultMicros.add(micros); }
+
+    void jobFinished(String state, long micros) {
+        jobStates.computeIfAbsent(state, s -> new AtomicLong()).incrementAndGet();
+        completionMicros.add(micros);
+    }
+
+    void notification(String topic) {
+        notifications.computeIfAbsent(topic != null ? topic : "none", t -> new AtomicLong()).incrementAndGet();
+    }
+
+    void clientSent() { clientSent.incrementAndGet(); }
+    void clientReceived() { clientReceived.incrementAndGet(); }
+    void clientFinished() { clients.countDown(); }
+
+    boolean awaitClients(long timeoutMillis) throws InterruptedException {
+        return clients.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Статистика агента из ответа на GET_STATS: сохраняется последний ответ
+     * и максимальная длина очереди входящих сообщений
+     */
+    void stats(String agent, Map<String, Object> stats) {
+        lastStats.put(agent, stats);
+        Object queue = stats.get("queue");
+        if (queue instanceof Number) {
+            maxQueue.merge(agent, ((Number) queue).longValue(), Math::max);
+        }
+    }
+
+    /**
+     * Машиночитаемый отчет
+     */
+    Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("connect", percentiles(connectMicros));
+        latency.put("results", percentiles(resultMicros));
+        latency.put("completion", percentiles(completionMicros));
+        report.put("latencyMicros", latency);
+        report.put("jobs", counts(jobStates));
+        report.put("notificationsByTopic", counts(notifications));
+        Map<String, Object> clientMessages = new LinkedHashMap<>();
+        clientMessages.put("sent", clientSent.get());
+        clientMessages.put("received", clientReceived.get());
+        report.put("clientMessages", clientMessages);
+
+        Map<String, Object> agents = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(lastStats.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Map<String, Object> agent = new LinkedHashMap<>(lastStats.get(name));
+            agent.put("maxQueue", maxQueue.getOrDefault(name, 0L));
+            agents.put(name, agent);
+        }
+        report.put("agents", agents);
+        return report;
+    }
+
+    private static Map<String, Long> counts(Map<String, AtomicLong> counters) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        counters.forEach((key, value) -> result.put(key, value.get()));
+        return result;
+    }
+
+    static Map<String, Object> percentiles(Collection<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", sorted.size());
+        if (sorted.isEmpty()) {
+            return result;
+        }
+        long sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        result.put("mean", sum / sorted.size());
+        result.put("p50", percentile(sorted, 0.50));
+        result.put("p90", percentile(sorted, 0.90));
+        result.put("p99", percentile(sorted, 0.99));
+        result.put("max", sorted.get(sorted.size() - 1));
+        return result;
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}
@@ -0,0 +1,128 @@
+package benchmarks.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import jade.core.Profile;
+import jade.core.ProfileImpl;
+import jade.core.Runtime;
+import jade.wrapper.AgentContainer;
+import jade.wrapper.AgentController;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Нагрузочный тест всей агентной системы в одном процессе.
+ * Запускает главный контейнер JADE без графического интерфейса (как main.Main),
+ * серверный агент, N клиентов со сценарием и агента сбора статистики, ждет
+ * завершения всех заданий и записывает отчет в формате JSON: перцентили задержек,
+ * количество сообщений и уведомлений, длины очередей ServerAgent, ModelAgent
+ * и транспортных агентов.
+ *
+ * Параметры вида ключ=значение:
+ * clients (10), jobs - заданий на клиента (5), think - пауза между заданиями, мс (0),
+ * subscribe - темы уведомлений клиентов (status,results), interval - период опроса
+ * статистики, мс (200), timeout - общий срок, мс (300000), report - файл отчета
+ * (loadtest-report.json), port - порт платформы (1099), log - уровень журнала (WARNING),
+ * server - аргументы ServerAgent через ';' (replay=0;cache=false).
+ *
+ * Пример: java -cp benchmarks.jar benchmarks.loadtest.LoadTest clients=50 jobs=10 server=replay=0;workers=4;cache=false
+ */
+public class LoadTest {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("clients", "10");
+        params.put("jobs", "5");
+        params.put("think", "0");
+        params.put("subscribe", "status,results");
+        params.put("interval", "200");
+        params.put("timeout", "300000");
+        params.put("report", "loadtest-report.json");
+        params.put("port", "1099");
+        params.put("log", "WARNING");
+        params.put("server", "replay=0;cache=false");
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            params.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        // Вывод журнала агентов на консоль сам по себе ограничивает пропускную способность
+        LogManager.getLogManager().reset();
+        Logger root = Logger.getLogger("");
+        Level level = Level.parse(params.get("log"));
+        root.setLevel(level);
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setLevel(level);
+        root.addHandler(handler);
+
+        int clients = Integer.parseInt(params.get("clients"));
+        int jobs = Integer.parseInt(params.get("jobs"));
+        long timeout = Long.parseLong(params.get("timeout"));
+        LoadRecorder recorder = new LoadRecorder(clients);
+
+        Runtime runtime = Runtime.instance();
+        runtime.setCloseVM(false);
+        Profile profile = new ProfileImpl();
+        profile.setParameter(Profile.MAIN_HOST, "localhost");
+        profile.setParameter(Profile.MAIN_PORT, params.get("port"));
+        profile.setParameter(Profile.LOCAL_PORT, params.get("port"));
+        profile.setParameter(Profile.GUI, "false");
+        profile.setParameter("nomtp", "true");
+        AgentContainer container = runtime.createMainContainer(profile);
+
+        String[] serverArgs = params.get("server").isEmpty() ? new String[0] : params.get("server").split(";");
+        container.createNewAgent("server", "main.ServerAgent", serverArgs).start();
+        long interval = Long.parseLong(params.get("interval"));
+        AgentController collector = container.createNewAgent("load-stats", StatsCollectorAgent.class.getName(),
+                new Object[] { recorder, "server", interval });
+        collector.start();
+
+        long started = System.nanoTime();
+        String subscription = params.get("subscribe").isEmpty() ? null : params.get("subscribe");
+        for (int i = 0; i < clients; i++) {
+            container.createNewAgent("load-client-" + i, ScriptedClientAgent.class.getName(),
+                    new Object[] { recorder, jobs, subscription, Long.parseLong(params.get("think")) }).start();
+        }
+        boolean completed = recorder.awaitClients(timeout);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        // Последний опрос статистики после завершения заданий
+        Thread.sleep(interval * 2);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("parameters", params);
+        report.put("completed", completed);
+        report.put("elapsedMillis", elapsedMillis);
+        report.put("jobsPerSecond", elapsedMillis > 0 ? clients * jobs * 1000.0 / elapsedMillis : 0);
+        report.putAll(recorder.report());
+        writeReport(params.get("report"), report);
+        System.out.println("Отчет нагрузочного теста: " + params.get("report")
+                + (completed ? "" : " (не все клиенты завершили сценарий за " + timeout + " мс)"));
+
+        try {
+            container.kill();
+        } catch (Exception e) {
+            // Платформа останавливается вместе с процессом
+        }
+        runtime.shutDown();
+        System.exit(completed ? 0 : 2);
+    }
+
+    private static void writeReport(String file, Map<String, Object> report) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            GSON.toJson(report, writer);
+        }
+    }
+}
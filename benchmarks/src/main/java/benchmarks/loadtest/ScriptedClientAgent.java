@@ -0,0 +1,184 @@
+package benchmarks.loadtest;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
+import jade.core.behaviours.WakerBehaviour;
+import jade.domain.DFService;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import jade.domain.FIPAException;
+import jade.lang.acl.ACLMessage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Клиент нагрузочного теста: вместо ввода с терминала выполняет сценарий -
+ * подключение, подписка, последовательный запуск заданий и ожидание их завершения.
+ * Аргументы: LoadRecorder, количество заданий, темы подписки (или null), пауза между заданиями, мс.
+ */
+public class ScriptedClientAgent extends Agent {
+    private static final Pattern JOB_ID = Pattern.compile("(job-\\d+)");
+    private static final Pattern JOB_FINISHED = Pattern.compile("^\\s*\\[(job-\\d+)] Задание (выполнено|отменено|не выполнено)");
+    private static final Pattern JOB_RESULTS = Pattern.compile("^\\s*\\[(job-\\d+)] Распределение товаров завершено\\. Результаты");
+
+    private LoadRecorder recorder;
+    private int jobsLeft;
+    private String subscription;
+    private long thinkMillis;
+    private AID server;
+    private long connectSentAt;
+    private final Deque<Long> pendingStarts = new ArrayDeque<>(); // Время отправки start в порядке ответов
+    private final Map<String, Long> startedAt = new HashMap<>();  // Задание -> время отправки start
+    private boolean finished;
+
+    @Override
+    protected void setup() {
+        Object[] args = getArguments();
+        recorder = (LoadRecorder) args[0];
+        jobsLeft = (Integer) args[1];
+        subscription = (String) args[2];
+        thinkMillis = (Long) args[3];
+        addBehaviour(new FindServerBehaviour());
+        addBehaviour(new ScriptBehaviour());
+    }
+
+    @Override
+    protected void takeDown() {
+        finish();
+    }
+
+    /**
+     * Поиск сервера в DF с повторами до успешного подключения
+     */
+    private class FindServerBehaviour extends TickerBehaviour {
+        FindServerBehaviour() {
+            super(ScriptedClientAgent.this, 200);
+        }
+
+        @Override
+        protected void onTick() {
+            DFAgentDescription template = new DFAgentDescription();
+            ServiceDescription sd = new ServiceDescription();
+            sd.setType("goods-distribution");
+            template.addServices(sd);
+            try {
+                DFAgentDescription[] result = DFService.search(myAgent, template);
+                if (result.length > 0) {
+                    server = result[0].getName();
+                    connectSentAt = System.nanoTime();
+                    request("CONNECT");
+                    stop();
+                }
+            } catch (FIPAException e) {
+                // Повтор на следующем такте
+            }
+        }
+    }
+
+    private class ScriptBehaviour extends CyclicBehaviour {
+        @Override
+        public void action() {
+            ACLMessage msg = receive();
+            if (msg == null) {
+                block();
+                return;
+            }
+            recorder.clientReceived();
+            String content = msg.getContent();
+            if (content == null) {
+                return;
+            }
+            if (content.equals("PING")) {
+                ACLMessage reply = msg.createReply();
+                reply.setPerformative(ACLMessage.INFORM);
+                reply.setContent("PONG");
+                send(reply);
+                recorder.clientSent();
+            } else if (content.equals("CONNECTED")) {
+                recorder.connected((System.nanoTime() - connectSentAt) / 1000);
+                if (subscription != null) {
+                    request("COMMAND:subscribe " + subscription);
+                }
+                startNext();
+            } else if (content.startsWith("RESULT:")) {
+                Matcher matcher = JOB_ID.matcher(content);
+                if (matcher.find() && !pendingStarts.isEmpty()
+                        && (content.contains("запущено") || content.contains("поставлено в очередь"))) {
+                    startedAt.put(matcher.group(1), pendingStarts.poll());
+                }
+            } else if (content.startsWith("NOTIFICATION:")) {
+                recorder.notification(msg.getUserDefinedParameter("topic"));
+                String text = content.substring(13);
+                Matcher results = JOB_RESULTS.matcher(text);
+                if (results.find() && startedAt.containsKey(results.group(1))) {
+                    recorder.results((System.nanoTime() - startedAt.get(results.group(1))) / 1000);
+                }
+                Matcher done = JOB_FINISHED.matcher(text);
+                if (done.find()) {
+                    Long start = startedAt.remove(done.group(1));
+                    if (start != null) {
+                        recorder.jobFinished(stateOf(done.group(2)), (System.nanoTime() - start) / 1000);
+                        scheduleNext();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String stateOf(String text) {
+        switch (text) {
+            case "выполнено":
+                return "COMPLETED";
+            case "отменено":
+                return "CANCELLED";
+            default:
+                return "FAILED";
+        }
+    }
+
+    private void scheduleNext() {
+        if (thinkMillis <= 0) {
+            startNext();
+            return;
+        }
+        addBehaviour(new WakerBehaviour(this, thinkMillis) {
+            @Override
+            protected void onWake() {
+                startNext();
+            }
+        });
+    }
+
+    private void startNext() {
+        if (jobsLeft <= 0) {
+            request("DISCONNECT");
+            finish();
+            return;
+        }
+        jobsLeft--;
+        pendingStarts.add(System.nanoTime());
+        request("COMMAND:start");
+    }
+
+    private void request(String content) {
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+        msg.addReceiver(server);
+        msg.setContent(content);
+        send(msg);
+        recorder.clientSent();
+    }
+
+    private void finish() {
+        if (!finished) {
+            finished = true;
+            recorder.clientFinished();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks.loadtest;
+
+import agents.StatsBehaviour;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import jade.core.AID;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Периодический опрос статистики агентов по протоколу GET_STATS: сервер
+ * сообщает имена живых агентов-моделей, агенты-модели - имена своего транспорта,
+ * поэтому опрос охватывает агентов, созданных во время теста.
+ * Аргументы: LoadRecorder, имя серверного агента, период опроса, мс.
+ */
+public class StatsCollectorAgent extends Agent {
+    // Целые счетчики остаются целыми, а не становятся double
+    private static final Gson GSON = new GsonBuilder().setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE).create();
+    private static final Type STATS_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
+    private LoadRecorder recorder;
+
+    @Override
+    protected void setup() {
+        Object[] args = getArguments();
+        recorder = (LoadRecorder) args[0];
+        AID server = new AID((String) args[1], AID.ISLOCALNAME);
+        addBehaviour(new TickerBehaviour(this, (Long) args[2]) {
+            @Override
+            protected void onTick() {
+                request(server.getLocalName());
+            }
+        });
+        addBehaviour(new CyclicBehaviour(this) {
+            private final MessageTemplate template = MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                    MessageTemplate.MatchConversationId(StatsBehaviour.CONVERSATION_ID)
+            );
+
+            @Override
+            public void action() {
+                ACLMessage reply = receive(template);
+                if (reply == null) {
+                    block();
+                    return;
+                }
+                Map<String, Object> stats;
+                try {
+                    stats = GSON.fromJson(reply.getContent(), STATS_TYPE);
+                } catch (JsonSyntaxException e) {
+                    return;
+                }
+                recorder.stats(reply.getSender().getLocalName(), stats);
+                requestAll(stats.get("models"));
+                requestAll(stats.get("vehicles"));
+            }
+        });
+    }
+
+    private void requestAll(Object names) {
+        if (names instanceof List) {
+            for (Object name : (List<?>) names) {
+                request(String.valueOf(name));
+            }
+        }
+    }
+
+    private void request(String agent) {
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+        msg.addReceiver(new AID(agent, AID.ISLOCALNAME));
+        msg.setConversationId(StatsBehaviour.CONVERSATION_ID);
+        msg.setContent(StatsBehaviour.REQUEST);
+        send(msg);
+    }
+}
@@ -0,0 +1,211 @@
+package agents;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import jade.core.AID;
+import jade.core.Agent;
+import jade.domain.FIPANames;
+import jade.lang.acl.ACLMessage;
+import jade.proto.ContractNetInitiator;
+import model.Good;
+import model.GoodsCodec;
+
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Децентрализованное распределение по протоколу FIPA Contract-Net.
+ * ModelAgent объявляет пакеты товаров, каждый VehicleAgent предлагает подмножество
+ * пакета с учетом своей остаточной грузоподъемности и несовместимостей груза.
+ * Товар отдается предложившему его транспорту с наибольшим остатком; товары,
+ * не принятые ни одним транспортом, объявляются повторно в конце очереди, пока
+ * раунды приносят результат. Если в раунде не принят ни один товар, груз транспорта
+ * не изменился и повторное объявление бессмысленно: товары раунда считаются нераспределенными.
+ */
+class ContractNetAllocation {
+    private static final Gson GSON = new Gson();
+    private static final Type IDS_TYPE = new TypeToken<List<String>>() {}.getType();
+
+    private final Agent agent;
+    private final Map<String, AID> vehicles;
+    private final int batchSize;
+    private final long timeoutMillis;
+    private final Logger logger;
+    private final BiConsumer<Map<String, List<Good>>, List<Good>> onComplete;
+
+    private final Deque<Good> queue;
+    private final Map<String, List<Good>> distribution = new HashMap<>();
+    private final List<Good> unassignedGoods = new ArrayList<>();
+    private int round;
+
+    /**
+     * @param agent агент-инициатор
+     * @param vehicles транспортные агенты
+     * @param goods товары в порядке объявления
+     * @param batchSize размер пакета товаров в одном объявлении
+     * @param timeoutMillis срок ожидания предложений
+     * @param logger логгер
+     * @param onComplete обработчик итогового распределения и нераспределенных товаров
+     */
+    ContractNetAllocation(Agent agent, Map<String, AID> vehicles, List<Good> goods, int batchSize, long timeoutMillis,
+                          Logger logger, BiConsumer<Map<String, List<Good>>, List<Good>> onComplete) {
+        this.agent = agent;
+        this.vehicles = vehicles;
+        this.batchSize = Math.max(1, batchSize);
+        this.timeoutMillis = timeoutMillis;
+        this.logger = logger;
+        this.onComplete = onComplete;
+        this.queue = new ArrayDeque<>(goods);
+        for (String vehicle : vehicles.keySet()) {
+            distribution.put(vehicle, new ArrayList<>());
+        }
+    }
+
+    void start() {
+        nextRound();
+    }
+
+    private void nextRound() {
+        if (queue.isEmpty()) {
+            onComplete.accept(distribution, unassignedGoods);
+            return;
+        }
+        List<Good> batch = new ArrayList<>();
+        while (batch.size() < batchSize && !queue.isEmpty()) {
+            batch.add(queue.poll());
+        }
+        round++;
+
+        ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+        for (AID vehicle : vehicles.values()) {
+            cfp.addReceiver(vehicle);
+        }
+        cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+        cfp.setConversationId("cnet-" + agent.getLocalName() + "-" + round);
+        cfp.setReplyByDate(new Date(System.currentTimeMillis() + timeoutMillis));
+        cfp.setLanguage(GoodsCodec.LANGUAGE);
+        cfp.setByteSequenceContent(GoodsCodec.encode(batch)); // Вместе с несовместимостями
+        agent.addBehaviour(new AllocationRound(cfp, batch));
+    }
+
+    /**
+     * Один раунд контрактной сети для пакета товаров
+     */
+    private class AllocationRound extends ContractNetInitiator {
+        private final List<Good> batch;
+        private final Map<String, List<Good>> awarded = new HashMap<>();
+        private final List<Good> unplaced = new ArrayList<>();
+        private boolean progress;
+
+        AllocationRound(ACLMessage cfp, List<Good> batch) {
+            super(agent, cfp);
+            this.batch = batch;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // Сигнатура ContractNetInitiator без параметров типа
+        protected void handleAllResponses(Vector responses, Vector acceptances) {
+            // JADE передает списки ACL-сообщений
+            @SuppressWarnings("unchecked")
+            List<ACLMessage> replies = responses;
+            @SuppressWarnings("unchecked")
+            List<ACLMessage> answers = acceptances;
+            Map<String, ContractNetBid> bids = new HashMap<>();
+            Map<String, ACLMessage> proposals = new HashMap<>();
+            for (ACLMessage response : replies) {
+                if (response.getPerformative() == ACLMessage.PROPOSE) {
+                    String vehicle = response.getSender().getLocalName();
+                    bids.put(vehicle, GSON.fromJson(response.getContent(), ContractNetBid.class));
+                    proposals.put(vehicle, response);
+                }
+            }
+
+            // Товар получает предложивший его транспорт с наибольшим остатком
+            Map<String, Integer> residuals = new HashMap<>();
+            bids.forEach((vehicle, bid) -> residuals.put(vehicle, bid.getResidual()));
+            for (Good good : batch) {
+                String best = null;
+                for (Map.Entry<String, ContractNetBid> entry : bids.entrySet()) {
+                    if (entry.getValue().getGoods().contains(good.getId())
+                            && (best == null || residuals.get(entry.getKey()) > residuals.get(best))) {
+                        best = entry.getKey();
+                    }
+                }
+                if (best != null) {
+                    awarded.computeIfAbsent(best, k -> new ArrayList<>()).add(good);
+                    residuals.merge(best, -good.getWeight(), Integer::sum);
+                } else {
+                    unplaced.add(good);
+                }
+            }
+
+            for (Map.Entry<String, ACLMessage> entry : proposals.entrySet()) {
+                ACLMessage reply = entry.getValue().createReply();
+                List<Good> goods = awarded.get(entry.getKey());
+                if (goods != null) {
+                    List<String> ids = new ArrayList<>();
+                    for (Good good : goods) {
+                        ids.add(good.getId());
+                    }
+                    reply.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
+                    reply.setContent(GSON.toJson(ids, IDS_TYPE));
+                } else {
+                    reply.setPerformative(ACLMessage.REJECT_PROPOSAL);
+                }
+                answers.add(reply);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes") // Сигнатура ContractNetInitiator без параметров типа
+        protected void handleAllResultNotifications(Vector resultNotifications) {
+            @SuppressWarnings("unchecked")
+            List<ACLMessage> notifications = resultNotifications;
+            for (ACLMessage notification : notifications) {
+                String vehicle = notification.getSender().getLocalName();
+                List<Good> goods = awarded.remove(vehicle);
+                if (goods == null) {
+                    continue;
+                }
+                if (notification.getPerformative() == ACLMessage.INFORM) {
+                    for (Good good : goods) {
+                        good.setAssigned(true);
+                        distribution.get(vehicle).add(good);
+                    }
+                    progress = true;
+                } else {
+                    unplaced.addAll(goods);
+                }
+            }
+        }
+
+        @Override
+        public int onEnd() {
+            // Транспорт, не подтвердивший принятие, теряет свои товары
+            for (List<Good> goods : awarded.values()) {
+                unplaced.addAll(goods);
+            }
+            awarded.clear();
+            for (Good good : unplaced) {
+                if (progress) {
+                    queue.addLast(good);
+                } else {
+                    logger.warning("Товар " + good.getId() + " не принят ни одним транспортом");
+                    unassignedGoods.add(good);
+                }
+            }
+            logger.info("Раунд контрактной сети " + round + " завершен, в очереди " + queue.size() + " товаров");
+            nextRound();
+            return super.onEnd();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package agents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Предложение транспортного агента в контрактной сети: остаток грузоподъемности
+ * и товары из объявленного пакета, которые транспорт готов принять.
+ * Любое подмножество предложенных товаров также допустимо для транспорта.
+ */
+class ContractNetBid {
+    private int residual;
+    private List<String> goods = new ArrayList<>();
+
+    ContractNetBid(int residual, List<String> goods) {
+        this.residual = residual;
+        this.goods = goods;
+    }
+
+    int getResidual() { return residual; }
+    List<String> getGoods() { return goods; }
+}
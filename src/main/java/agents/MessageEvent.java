@@ -0,0 +1,83 @@
+package agents;
+
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Locale;
+
+/**
+ * Событие JFR: обработка одного ACL-сообщения поведением агента.
+ * Длительность события - время обработки, queueWait - время ожидания
+ * сообщения в очереди агента (от постановки в очередь до извлечения).
+ */
+@Name("distribution.AclMessage")
+@Label("ACL Message Handling")
+@Category({"Distribution", "Agents"})
+@Description("Обработка ACL-сообщения агентом")
+@StackTrace(false)
+public class MessageEvent extends Event {
+    @Label("Agent")
+    String agent;
+
+    @Label("Behaviour")
+    String behaviour;
+
+    @Label("Sender")
+    String sender;
+
+    @Label("Performative")
+    String performative;
+
+    @Label("Content Prefix")
+    String prefix;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.MILLISECONDS)
+    long queueWait;
+
+    @Label("Queue Size")
+    int queueSize;
+
+    /**
+     * Начало обработки сообщения; поля заполняются, только если событие записывается
+     *
+     * @param agent агент, получивший сообщение
+     * @param behaviour имя поведения
+     * @param msg полученное сообщение
+     */
+    public static MessageEvent begin(Agent agent, String behaviour, ACLMessage msg) {
+        MessageEvent event = new MessageEvent();
+        if (event.isEnabled()) {
+            event.agent = agent.getLocalName();
+            event.behaviour = behaviour;
+            event.sender = msg.getSender() != null ? msg.getSender().getLocalName() : null;
+            event.performative = ACLMessage.getPerformative(msg.getPerformative());
+            event.prefix = msg.hasByteSequenceContent() ? "binary" : prefix(msg.getContent());
+            event.queueWait = msg.getPostTimeStamp() > 0 ? System.currentTimeMillis() - msg.getPostTimeStamp() : 0;
+            event.queueSize = agent.getCurQueueSize();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Тип содержимого: префикс протокола до двоеточия в нижнем регистре
+     * ("binary" для двоичного содержимого, "other" для произвольного текста)
+     */
+    public static String prefix(String content) {
+        if (content == null) {
+            return "binary";
+        }
+        int colon = content.indexOf(':');
+        String type = colon > 0 ? content.substring(0, colon) : content;
+        return type.length() <= 32 && type.chars().allMatch(c -> Character.isUpperCase(c) || c == '_')
+                ? type.toLowerCase(Locale.ROOT) : "other";
+    }
+}
@@ -2,9 +2,13 @@ package agents;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
 import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.core.behaviours.TickerBehaviour;
 import jade.domain.DFService;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
 import jade.domain.FIPAAgentManagement.ServiceDescription;
@@ -13,14 +17,25 @@ import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import jade.wrapper.AgentController;
 import model.DistributionAlgorithm;
+import model.DistributionCache;
+import model.DistributionEvent;
+import model.DistributionEventLog;
+import model.DistributionMode;
+import model.DistributionOptions;
 import model.Good;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
+import model.GoodsCodec;
+import model.GoodsManifestReader;
+import model.IncrementalPlanner;
+import model.Metrics;
+import model.OnlineAssigner;
+import model.PlanDelta;
+import model.RunJournal;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -28,11 +43,40 @@ import java.util.stream.Collectors;
 
 
 public class ModelAgent extends Agent {
+    // Gson потокобезопасен, поэтому экземпляры создаются один раз
+    private static final Gson GSON = new Gson();
+    private static final String ASSIGNMENT_CONVERSATION = "assignment";
+    // Количество событий журнала в одном сообщении EVENT_LOG
+    private static final int EVENT_LOG_CHUNK = 200;
+    // Диалог потокового распределения: товары (GOOD:<json> или двоичный пакет) и END_STREAM
+    public static final String STREAM_CONVERSATION = "goods-stream";
+    // Кэш результатов общий для всех агентов-моделей процесса
+    private static final DistributionCache RESULT_CACHE = new DistributionCache();
+    private static final Gson RESULTS_GSON = new GsonBuilder()
+            .excludeFieldsWithoutExposeAnnotation()
+            .setPrettyPrinting()
+            .create();
+    // Ответы потокового режима: неразмещенный товар передается как null
+    private static final Gson ANSWER_GSON = new GsonBuilder().serializeNulls().create();
     private List<Good> goods;
     private Map<String, AID> vehicleAgents;
+    private final Map<String, AgentController> vehicleControllers = new LinkedHashMap<>();
+    private int vehicleCounter; // Номер следующего транспортного агента
     private Logger logger;
     private AID serverAgent;
     private int numVehicles;
+    private DistributionOptions options;
+    private final Map<String, Integer> knownCapacities = new HashMap<>(); // Грузоподъемности транспорта: при создании и по ответам
+    private int discoveryCounter;
+    private final Map<String, Long> runTimings = new LinkedHashMap<>(); // Длительности этапов текущего запуска, мкс
+    private IncrementalPlanner planner; // Текущий план для локальных изменений (после завершения распределения)
+    private OnlineAssigner onlineAssigner; // Потоковое распределение (режим ONLINE)
+    private Map<String, Integer> streamCapacities;
+    private final List<Good> streamBatch = new ArrayList<>();          // Товары, ожидающие решения
+    private final List<ACLMessage> streamRequests = new ArrayList<>(); // Сообщения, ожидающие ответа
+    private final List<List<String>> streamRequestIds = new ArrayList<>(); // id товаров этих сообщений
+    private long streamBatchStartedAt;
+    private TickerBehaviour lingerBehaviour;
 
 
     @Override
@@ -56,31 +100,85 @@ public class ModelAgent extends Agent {
             numVehicles = 3;
         }
         logger.info("Количество транспортных средств: " + numVehicles);
+        try {
+            options = DistributionOptions.fromArguments(args, 1);
+        } catch (IllegalArgumentException e) {
+            logger.severe("Ошибка параметров распределения: " + e.getMessage());
+            options = new DistributionOptions();
+        }
 
         // Создание транспортных агентов
         createVehicleAgents();
         // Ожидание команд от ServerAgent
         addBehaviour(new ServerCommandBehaviour());
+        addBehaviour(new AssignmentReplyBehaviour());
+        addBehaviour(new StreamBehaviour());
+        addBehaviour(new StatsBehaviour(this, () -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("mode", options.getMode().name());
+            stats.put("goods", goods.size());
+            stats.put("vehicles", new ArrayList<>(vehicleAgents.keySet()));
+            stats.put("planReady", planner != null);
+            stats.put("streamPending", streamBatch.size());
+            return stats;
+        }));
         logger.info("ModelAgent готов к работе.");
     }
 
+    @Override
+    protected void takeDown() {
+        // Транспортные агенты принадлежат этому заданию и останавливаются вместе с ним
+        for (AgentController vehicle : vehicleControllers.values()) {
+            try {
+                vehicle.kill();
+            } catch (Exception e) {
+                logger.warning("Ошибка при остановке транспортного агента: " + e.getMessage());
+            }
+        }
+        try {
+            DFService.deregister(this);
+        } catch (FIPAException e) {
+            logger.warning("Ошибка при удалении регистрации: " + e.getMessage());
+        }
+        logger.info(getLocalName() + " остановлен");
+    }
+
     private void createVehicleAgents() {
         int[] capacities = {55, 60, 65};
         for (int i = 0; i < numVehicles; i++) {
-            String vehicleName = "Vehicle-" + i;
-            try {
-                Object[] args = new Object[] { capacities[i] }; // Передаем грузоподъемность
-                AgentController ac = getContainerController().createNewAgent(
-                        vehicleName,
-                        "agents.VehicleAgent",
-                        args
-                );
-                ac.start();
-                vehicleAgents.put(vehicleName, new AID(vehicleName, AID.ISLOCALNAME));
-                logger.info("Создан транспортный агент: " + vehicleName + ", грузоподъемность: " + capacities[i] + " кг.");
-            } catch (Exception e) {
-                logger.severe("Ошибка создания агента " + vehicleName + ": " + e.getMessage());
+            if (i >= capacities.length) {
+                // Как и при ошибке создания, транспорт пропускается, остальные создаются
+                logger.severe("Ошибка создания транспортного агента " + i + ": грузоподъемность не задана");
+                continue;
             }
+            createVehicleAgent(capacities[i]);
+        }
+    }
+
+    /**
+     * Создание транспортного агента
+     *
+     * @return имя агента или null, если агент не создан
+     */
+    private String createVehicleAgent(int capacity) {
+        // Имя агента-модели уникально для задания, поэтому транспорт разных заданий не пересекается
+        String vehicleName = getLocalName() + "-Vehicle-" + (vehicleCounter++);
+        try {
+            Object[] args = new Object[] { capacity }; // Передаем грузоподъемность
+            AgentController ac = getContainerController().createNewAgent(
+                    vehicleName,
+                    "agents.VehicleAgent",
+                    args
+            );
+            ac.start();
+            vehicleControllers.put(vehicleName, ac);
+            vehicleAgents.put(vehicleName, new AID(vehicleName, AID.ISLOCALNAME));
+            knownCapacities.put(vehicleName, capacity);
+            logger.info("Создан транспортный агент: " + vehicleName + ", грузоподъемность: " + capacity + " кг.");
+            return vehicleName;
+        } catch (Exception e) {
+            logger.severe("Ошибка создания агента " + vehicleName + ": " + e.getMessage());
+            return null;
         }
     }
 
@@ -88,8 +186,12 @@ public class ModelAgent extends Agent {
         DFAgentDescription template = new DFAgentDescription();
         ServiceDescription sd = new ServiceDescription();
         sd.setType("goods-distribution");
+        template.addServices(sd);
         try {
             DFAgentDescription[] result = DFService.search(this, template);
+            if (result.length == 0) {
+                throw new FIPAException("сервис goods-distribution не зарегистрирован");
+            }
             return result[0].getName();
         } catch (FIPAException e) {
             logger.severe("ServerAgent не найден: " + e.getMessage());
@@ -112,20 +214,78 @@ public class ModelAgent extends Agent {
         }
     }
 
+    /**
+     * Ответы транспортных агентов на назначения: CONFIRM (пакет принят) или REFUSE с причиной
+     */
+    private class AssignmentReplyBehaviour extends CyclicBehaviour {
+        private final MessageTemplate template = MessageTemplate.and(
+                MessageTemplate.MatchConversationId(ASSIGNMENT_CONVERSATION),
+                MessageTemplate.or(
+                        MessageTemplate.MatchPerformative(ACLMessage.CONFIRM),
+                        MessageTemplate.or(
+                                MessageTemplate.MatchPerformative(ACLMessage.REFUSE),
+                                MessageTemplate.MatchPerformative(ACLMessage.NOT_UNDERSTOOD)
+                        )
+                )
+        );
+
+        @Override
+        public void action() {
+            ACLMessage msg = receive(template);
+            if (msg == null) {
+                block();
+                return;
+            }
+            MessageEvent event = MessageEvent.begin(myAgent, "AssignmentReplyBehaviour", msg);
+            try {
+                String vehicle = msg.getSender().getLocalName();
+                if (msg.getPerformative() == ACLMessage.CONFIRM) {
+                    logger.info("Транспорт " + vehicle + " подтвердил назначение");
+                } else if (msg.getPerformative() == ACLMessage.NOT_UNDERSTOOD) {
+                    logger.severe("Транспорт " + vehicle + " не разобрал сообщение: " + msg.getContent());
+                } else {
+                    logger.warning("Транспорт " + vehicle + " отклонил назначение: " + msg.getContent());
+                }
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
     private class ServerCommandBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            MessageTemplate template = MessageTemplate.MatchSender(serverAgent);
+            // Подтверждения сводок о ходе распределения обрабатывает ProgressChannel
+            MessageTemplate template = MessageTemplate.and(
+                    MessageTemplate.MatchSender(serverAgent),
+                    MessageTemplate.not(MessageTemplate.or(
+                            ProgressChannel.TEMPLATE,
+                            MessageTemplate.MatchConversationId(STREAM_CONVERSATION)))
+            );
             ACLMessage msg = receive(template);
             if (msg != null) {
-                switch (msg.getContent()) {
-                    case "START_DISTRIBUTION":
-                        loadGoodsFromJson();
-                        distributeGoods();
-                        break;
-                    case "STOP_DISTRIBUTION":
-                        doDelete();
-                        break;
+                MessageEvent event = MessageEvent.begin(myAgent, "ServerCommandBehaviour", msg);
+                try {
+                    switch (msg.getContent()) {
+                        case "START_DISTRIBUTION":
+                            runTimings.clear();
+                            // В потоковом режиме товары поступают сообщениями, а не из манифеста
+                            if (options.getMode() != DistributionMode.ONLINE) {
+                                loadGoodsFromJson();
+                            }
+                            distributeGoods();
+                            break;
+                        case "STOP_DISTRIBUTION":
+                            doDelete();
+                            break;
+                        default:
+                            if (msg.getContent().startsWith("DELTA:")) {
+                                applyDelta(msg.getContent().substring(6));
+                            }
+                            break;
+                    }
+                } finally {
+                    event.commit();
                 }
             } else {
                 block();
@@ -135,19 +295,13 @@ public class ModelAgent extends Agent {
 
     private void loadGoodsFromJson() {
         try {
-            JSONParser parser = new JSONParser();
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("goods.json");
-            if (inputStream == null) {
-                throw new FileNotFoundException("Файл goods.json не найден в ресурсах!");
-            }
-            JSONObject jsonObject = (JSONObject) parser.parse(new InputStreamReader(inputStream));
-            JSONArray goodsArray = (JSONArray) jsonObject.get("goods");
-            for (Object obj : goodsArray) {
-                JSONObject goodJson = (JSONObject) obj;
-                String id = (String) goodJson.get("id");
-                int weight = ((Long) goodJson.get("weight")).intValue();
-                goods.add(new Good(id, weight, (JSONArray) goodJson.get("incompatibilities")));
-            }
+            // Потоковое чтение манифеста: из указанного файла или goods.json из ресурсов
+            long start = System.nanoTime();
+            String manifest = options.getManifest();
+            goods = manifest != null
+                    ? GoodsManifestReader.readFile(Paths.get(manifest))
+                    : GoodsManifestReader.readResource("goods.json");
+            recordTiming("load_json", start);
             logger.info("Загружено товаров: " + goods.size());
             ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
             notification.addReceiver(serverAgent);
@@ -159,110 +313,593 @@ public class ModelAgent extends Agent {
     }
 
     private void distributeGoods() {
+        long discoveryStart = System.nanoTime();
         Map<String, Integer> vehicleCapacities = getVehicleCapacities();
-        DistributionAlgorithm algorithm = new DistributionAlgorithm(goods, vehicleAgents, vehicleCapacities, logger, this, serverAgent);
+        recordTiming("capacity_discovery", discoveryStart);
+        if (vehicleCapacities.isEmpty()) {
+            logger.severe("Ни один транспорт не ответил на запрос грузоподъемности");
+            ACLMessage failure = new ACLMessage(ACLMessage.INFORM);
+            failure.addReceiver(serverAgent);
+            failure.setContent("FAILED: Нет доступного транспорта, распределение невозможно.");
+            send(failure);
+            return;
+        }
+        // Транспорт, не ответивший на запрос грузоподъемности, в распределении не участвует
+        Map<String, AID> availableVehicles = new HashMap<>();
+        for (Map.Entry<String, AID> entry : vehicleAgents.entrySet()) {
+            if (vehicleCapacities.containsKey(entry.getKey())) {
+                availableVehicles.put(entry.getKey(), entry.getValue());
+            }
+        }
+        // Груз предыдущего запуска снимается с транспорта
+        ACLMessage reset = new ACLMessage(ACLMessage.REQUEST);
+        availableVehicles.values().forEach(reset::addReceiver);
+        reset.setContent("RESET");
+        send(reset);
+        planner = null;
+        if (options.getSeed() != null && seedFromResults(vehicleCapacities)) {
+            return;
+        }
+        if (options.getMode() == DistributionMode.ONLINE) {
+            startOnlineAssignment(vehicleCapacities);
+            return;
+        }
+        if (options.getMode() == DistributionMode.CONTRACT_NET) {
+            startContractNetAllocation(availableVehicles, vehicleCapacities);
+            return;
+        }
+        String cacheKey = null;
+        if (options.isCacheEnabled()) {
+            RESULT_CACHE.configure(options.getCacheSize(), options.getCacheTtl(), options.getCacheDir());
+            cacheKey = DistributionCache.key(goods, vehicleCapacities, options);
+            DistributionCache.Hit hit = RESULT_CACHE.get(cacheKey, vehicleCapacities);
+            Metrics.counter(hit != null ? "model.cache.hits" : "model.cache.misses").increment();
+            if (hit != null) {
+                logger.info("Результат распределения взят из кэша (" + cacheKey.substring(0, 12) + ")");
+                ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
+                notification.addReceiver(serverAgent);
+                notification.setContent("NOTIFICATION: Исходные данные не изменились, результат взят из кэша.");
+                send(notification);
+                planner = new IncrementalPlanner(hit.getDistribution(), hit.getUnassignedGoods(), vehicleCapacities);
+                publishResults(hit.getDistribution(), hit.getUnassignedGoods(), true);
+                return;
+            }
+        }
+        DistributionAlgorithm algorithm = new DistributionAlgorithm(goods, availableVehicles, vehicleCapacities, logger, options);
+        DistributionEventLog eventLog = new DistributionEventLog();
+        algorithm.addListener(eventLog);
+        // Ход распределения передается серверу периодическими сводками
+        ProgressChannel progress = new ProgressChannel(this, serverAgent,
+                options.getProgressInterval(), options.getProgressBatch(), options.getProgressInFlight());
+        algorithm.addListener(progress);
         Map<String, List<Good>> distribution = algorithm.distributeGoods();
+        progress.close();
+        algorithm.getPhaseTimings().forEach((phase, micros) -> runTimings.put("algorithm." + phase, micros));
+        if (algorithm.isResumed()) {
+            sendToServer("NOTIFICATION: Распределение продолжено с контрольной точки прерванного запуска.");
+        }
+
+        // Журнал событий воспроизводится клиентам сервером в демонстрационном темпе
+        // параллельно с результатами; большой журнал передается частями
+        List<DistributionEvent> events = eventLog.getEvents();
+        for (int from = 0; from < events.size(); from += EVENT_LOG_CHUNK) {
+            ACLMessage eventLogMsg = new ACLMessage(ACLMessage.INFORM);
+            eventLogMsg.addReceiver(serverAgent);
+            eventLogMsg.setContent("EVENT_LOG:" + GSON.toJson(events.subList(from, Math.min(events.size(), from + EVENT_LOG_CHUNK))));
+            send(eventLogMsg);
+        }
+
+        if (cacheKey != null) {
+            RESULT_CACHE.put(cacheKey, distribution, algorithm.getUnassignedGoods());
+        }
+        planner = new IncrementalPlanner(distribution, algorithm.getUnassignedGoods(), vehicleCapacities);
+        publishResults(distribution, algorithm.getUnassignedGoods(), true);
+    }
+
+    /**
+     * Запуск распределения по протоколу Contract-Net: транспортные агенты сами
+     * проверяют вместимость и совместимость и принимают товары
+     */
+    private void startContractNetAllocation(Map<String, AID> availableVehicles, Map<String, Integer> vehicleCapacities) {
+        ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
+        notification.addReceiver(serverAgent);
+        notification.setContent("NOTIFICATION: Начало распределения по протоколу Contract-Net.");
+        send(notification);
+
+        List<Good> sortedGoods = new ArrayList<>(goods);
+        sortedGoods.sort((g1, g2) -> Integer.compare(g2.getWeight(), g1.getWeight()));
+        new ContractNetAllocation(this, availableVehicles, sortedGoods, options.getContractNetBatch(),
+                options.getDiscoveryTimeout(), logger,
+                (distribution, unassignedGoods) -> {
+                    planner = new IncrementalPlanner(distribution, unassignedGoods, vehicleCapacities);
+                    publishResults(distribution, unassignedGoods, false);
+                }).start();
+    }
+
+    /**
+     * Поступление товаров в потоковом режиме. Товары размещаются сразу или,
+     * при размере пакета больше 1, пакетами по заполнении либо по истечении
+     * времени ожидания. Отправитель получает ответ ASSIGNED:{id: транспорт или null}.
+     */
+    private class StreamBehaviour extends CyclicBehaviour {
+        private final MessageTemplate template = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                MessageTemplate.MatchConversationId(STREAM_CONVERSATION)
+        );
+
+        @Override
+        public void action() {
+            ACLMessage msg = receive(template);
+            if (msg == null) {
+                block();
+                return;
+            }
+            MessageEvent event = MessageEvent.begin(myAgent, "StreamBehaviour", msg);
+            try {
+                if (onlineAssigner == null) {
+                    ACLMessage reply = msg.createReply();
+                    reply.setPerformative(ACLMessage.FAILURE);
+                    reply.setLanguage(null);
+                    reply.setContent("Потоковое распределение не запущено");
+                    send(reply);
+                    return;
+                }
+                if (!GoodsCodec.LANGUAGE.equals(msg.getLanguage()) && "END_STREAM".equals(msg.getContent())) {
+                    flushStream();
+                    finishStream();
+                    return;
+                }
+                List<Good> received;
+                try {
+                    received = readStreamGoods(msg);
+                } catch (IllegalArgumentException | JsonSyntaxException e) {
+                    logger.severe("Ошибка разбора товаров: " + e.getMessage());
+                    ACLMessage reply = msg.createReply();
+                    reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+                    reply.setLanguage(null);
+                    reply.setContent(e.getMessage());
+                    send(reply);
+                    return;
+                }
+                if (streamBatch.isEmpty()) {
+                    streamBatchStartedAt = System.currentTimeMillis();
+                }
+                streamBatch.addAll(received);
+                streamRequests.add(msg);
+                streamRequestIds.add(received.stream().map(Good::getId).collect(Collectors.toList()));
+                if (streamBatch.size() >= options.getOnlineBatch()) {
+                    flushStream();
+                }
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
+    private List<Good> readStreamGoods(ACLMessage msg) {
+        if (GoodsCodec.LANGUAGE.equals(msg.getLanguage())) {
+            return GoodsCodec.decode(msg.getByteSequenceContent());
+        }
+        String content = msg.getContent();
+        if (content == null || !content.startsWith("GOOD:")) {
+            throw new IllegalArgumentException("Ожидалось GOOD:<json>: " + content);
+        }
+        Good good = GSON.fromJson(content.substring(5), Good.class);
+        if (good == null || good.getId() == null) {
+            throw new IllegalArgumentException("Товар без id: " + content);
+        }
+        List<Good> received = new ArrayList<>();
+        received.add(good);
+        return received;
+    }
+
+    /**
+     * Запуск потокового распределения: транспорт ожидает товары
+     */
+    private void startOnlineAssignment(Map<String, Integer> vehicleCapacities) {
+        streamCapacities = vehicleCapacities;
+        onlineAssigner = new OnlineAssigner(vehicleCapacities, options.getOnlineSeal());
+        if (options.getOnlineBatch() > 1) {
+            lingerBehaviour = new TickerBehaviour(this, Math.max(1, options.getOnlineLinger())) {
+                @Override
+                protected void onTick() {
+                    if (!streamBatch.isEmpty()
+                            && System.currentTimeMillis() - streamBatchStartedAt >= options.getOnlineLinger()) {
+                        flushStream();
+                    }
+                }
+            };
+            addBehaviour(lingerBehaviour);
+        }
+        logger.info("Потоковое распределение запущено, транспорта: " + vehicleCapacities.size());
+        sendToServer("NOTIFICATION: Потоковое распределение запущено, ожидание товаров.");
+    }
+
+    /**
+     * Решение по накопленным товарам: назначения отправляются транспорту
+     * одним сообщением на транспорт, отправителям - ответы с решениями
+     */
+    private void flushStream() {
+        if (streamBatch.isEmpty()) {
+            return;
+        }
+        int openBefore = onlineAssigner.getOpenVehicles();
+        List<OnlineAssigner.Decision> decisions = options.getOnlineBatch() > 1
+                ? onlineAssigner.offerAll(streamBatch)
+                : streamBatch.stream().map(onlineAssigner::offer).collect(Collectors.toList());
+        streamBatch.clear();
+
+        Map<String, List<Good>> assignments = new LinkedHashMap<>();
+        Map<String, String> vehicleById = new HashMap<>();
+        for (OnlineAssigner.Decision decision : decisions) {
+            vehicleById.put(decision.getGood().getId(), decision.getVehicle());
+            if (decision.isAssigned()) {
+                assignments.computeIfAbsent(decision.getVehicle(), v -> new ArrayList<>()).add(decision.getGood());
+                if (decision.isSealed()) {
+                    sendToServer("NOTIFICATION: Транспорт " + decision.getVehicle() + " загружен и закрыт.");
+                }
+            } else {
+                logger.warning("Товар " + decision.getGood().getId() + " не размещен: " + decision.getReason());
+            }
+        }
+        sendAssignments(assignments);
+        if (openBefore > 0 && onlineAssigner.getOpenVehicles() == 0) {
+            sendToServer("NOTIFICATION: Весь транспорт закрыт, новые товары не будут размещены.");
+        }
+
+        for (int i = 0; i < streamRequests.size(); i++) {
+            Map<String, String> answer = new LinkedHashMap<>();
+            for (String id : streamRequestIds.get(i)) {
+                answer.put(id, vehicleById.get(id));
+            }
+            ACLMessage reply = streamRequests.get(i).createReply();
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setLanguage(null);
+            reply.setContent("ASSIGNED:" + ANSWER_GSON.toJson(answer));
+            send(reply);
+        }
+        streamRequests.clear();
+        streamRequestIds.clear();
+    }
+
+    /**
+     * Завершение потокового распределения: итоговые результаты отправляются серверу,
+     * план сохраняется для локальных изменений
+     */
+    private void finishStream() {
+        if (lingerBehaviour != null) {
+            removeBehaviour(lingerBehaviour);
+            lingerBehaviour = null;
+        }
+        OnlineAssigner assigner = onlineAssigner;
+        onlineAssigner = null;
+        String stats = "решений: " + assigner.getDecisions()
+                + ", среднее время " + assigner.getMeanLatencyNanos() / 1000 + " мкс"
+                + ", максимальное " + assigner.getMaxLatencyNanos() / 1000 + " мкс";
+        logger.info("Потоковое распределение завершено, " + stats);
+        sendToServer("NOTIFICATION: Потоковое распределение завершено, " + stats + ".");
+        Map<String, List<Good>> distribution = assigner.getDistribution();
+        List<Good> unassignedGoods = assigner.getUnassignedGoods();
+        planner = new IncrementalPlanner(distribution, unassignedGoods, streamCapacities);
+        // Транспорт уже получил свои товары по мере поступления
+        publishResults(distribution, unassignedGoods, false);
+    }
+
+    /**
+     * Начало задания с сохраненного плана вместо полного распределения.
+     * План проверяется по текущему манифесту и грузоподъемностям и исправляется локально.
+     *
+     * @return true, если план загружен и результаты отправлены
+     */
+    private boolean seedFromResults(Map<String, Integer> vehicleCapacities) {
+        try (Reader reader = options.getSeed().startsWith("run-")
+                ? journalPlanReader(RunJournal.parseRunId(options.getSeed()))
+                : new BufferedReader(new FileReader(options.getSeed()))) {
+            planner = IncrementalPlanner.fromResults(reader, goods, vehicleCapacities);
+        } catch (IOException | IllegalArgumentException | JsonParseException e) {
+            logger.warning("Не удалось загрузить план " + options.getSeed() + ": " + e.getMessage());
+            return false;
+        }
+        logger.info("Задание начато с сохраненного плана " + options.getSeed());
+        ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
+        notification.addReceiver(serverAgent);
+        notification.setContent("NOTIFICATION: Задание начато с сохраненного плана " + options.getSeed() + ".");
+        send(notification);
+        publishResults(planner.getDistribution(), planner.getUnassignedGoods(), true);
+        return true;
+    }
+
+    /**
+     * План запуска из журнала в формате файла результатов
+     */
+    private Reader journalPlanReader(long run) throws IOException {
+        RunJournal journal = openJournal();
+        String record = journal != null ? journal.read(run) : null;
+        if (record == null) {
+            throw new IOException("запуск не найден в журнале");
+        }
+        return new StringReader(JsonParser.parseString(record).getAsJsonObject().get("plan").toString());
+    }
+
+    /**
+     * Локальное изменение готового плана: добавление и удаление товаров и транспорта.
+     * Транспортным агентам отправляются только снятые и добавленные товары
+     * затронутого транспорта, серверу - новый груз этого транспорта.
+     *
+     * @param json изменение (PlanDelta)
+     */
+    private void applyDelta(String json) {
+        if (planner == null) {
+            sendToServer("NOTIFICATION: План еще не готов, изменение не применено.");
+            return;
+        }
+        PlanDelta delta;
+        try {
+            delta = GSON.fromJson(json, PlanDelta.class);
+        } catch (JsonSyntaxException e) {
+            logger.severe("Ошибка разбора изменения: " + e.getMessage());
+            return;
+        }
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        // Изменение проверяется целиком до создания транспорта и изменения плана
+        try {
+            planner.validate(delta);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Изменение не применено: " + e.getMessage());
+            sendToServer("NOTIFICATION: Изменение не применено: " + e.getMessage());
+            return;
+        }
+        // Новый транспорт создается до изменения плана, чтобы получить имена агентов
+        List<String> newVehicles = new ArrayList<>();
+        for (int capacity : delta.getAddVehicles()) {
+            String vehicleName = createVehicleAgent(capacity);
+            if (vehicleName == null) {
+                newVehicles.forEach(this::removeVehicleAgent);
+                sendToServer("NOTIFICATION: Не удалось создать транспорт, изменение не применено.");
+                return;
+            }
+            newVehicles.add(vehicleName);
+        }
+
+        long start = System.nanoTime();
+        IncrementalPlanner.Change change;
+        try {
+            change = planner.apply(delta, newVehicles);
+        } catch (IllegalArgumentException e) {
+            // План не изменен: созданный для изменения транспорт не нужен
+            newVehicles.forEach(this::removeVehicleAgent);
+            logger.warning("Изменение не применено: " + e.getMessage());
+            sendToServer("NOTIFICATION: Изменение не применено: " + e.getMessage());
+            return;
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        runTimings.clear();
+        runTimings.put("delta", micros);
+
+        // Снятие груза выполняется раньше добавления: сообщения одного отправителя доставляются по порядку
+        change.getRemoved().forEach((vehicleName, ids) -> {
+            if (change.getRemovedVehicles().contains(vehicleName)) {
+                return;
+            }
+            ACLMessage release = new ACLMessage(ACLMessage.REQUEST);
+            release.addReceiver(new AID(vehicleName, AID.ISLOCALNAME));
+            release.setConversationId(ASSIGNMENT_CONVERSATION);
+            release.setContent("RELEASE:" + GSON.toJson(ids));
+            send(release);
+        });
+        sendAssignments(change.getAdded());
+        for (String vehicleName : change.getRemovedVehicles()) {
+            removeVehicleAgent(vehicleName);
+        }
+
+        Map<String, List<Good>> changed = new HashMap<>();
+        for (String vehicleName : change.getVehicles()) {
+            changed.put(vehicleName, planner.getGoods(vehicleName));
+        }
+        logger.info("План изменен за " + micros + " мкс: " + delta + ", затронуто транспорта: " + changed.size());
+        sendToServer("NOTIFICATION: План изменен за " + micros + " мкс, затронуто транспорта: " + changed.size()
+                + (change.getRemovedVehicles().isEmpty() ? "" : ", выведено: " + change.getRemovedVehicles()) + ".");
+        sendToServer("PLAN_UPDATE:" + RESULTS_GSON.toJson(changed));
+        List<Good> unassignedGoods = planner.getUnassignedGoods();
+        sendToServer("UNASSIGNED_GOODS:" + RESULTS_GSON.toJson(unassignedGoods));
+        journalRun("update", planner.getDistribution(), unassignedGoods);
+    }
+
+    /**
+     * Остановка выведенного транспортного агента
+     */
+    private void removeVehicleAgent(String vehicleName) {
+        AgentController vehicle = vehicleControllers.remove(vehicleName);
+        vehicleAgents.remove(vehicleName);
+        knownCapacities.remove(vehicleName);
+        if (vehicle == null) {
+            return;
+        }
+        try {
+            vehicle.kill();
+            logger.info("Транспортный агент " + vehicleName + " выведен");
+        } catch (Exception e) {
+            logger.warning("Ошибка при остановке транспортного агента: " + e.getMessage());
+        }
+    }
+
+    private void sendToServer(String content) {
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(serverAgent);
+        msg.setContent(content);
+        send(msg);
+    }
+
+    /**
+     * Отправка результатов распределения серверу и транспортным агентам
+     *
+     * @param distribution итоговое распределение
+     * @param unassignedGoods нераспределенные товары
+     * @param sendToVehicles отправлять ли назначения транспортным агентам
+     *                       (в режиме Contract-Net транспорт уже принял свои товары)
+     */
+    private void publishResults(Map<String, List<Good>> distribution, List<Good> unassignedGoods, boolean sendToVehicles) {
         ACLMessage startNotification = new ACLMessage(ACLMessage.INFORM);
         startNotification.addReceiver(serverAgent);
         startNotification.setContent("NOTIFICATION: Начало распределения товаров.");
         send(startNotification);
 
-        sendAssignments(distribution);
-
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
+        if (sendToVehicles) {
+            sendAssignments(distribution);
+        }
 
         ACLMessage distributionMsg = new ACLMessage(ACLMessage.INFORM);
         distributionMsg.addReceiver(serverAgent);
-        distributionMsg.setContent("DISTRIBUTION_RESULTS:" + gson.toJson(distribution));
+        distributionMsg.setContent("DISTRIBUTION_RESULTS:" + RESULTS_GSON.toJson(distribution));
         send(distributionMsg);
 
-        List<Good> unassignedGoods = algorithm.getUnassignedGoods();
         if (!unassignedGoods.isEmpty()) {
             ACLMessage unassignedMsg = new ACLMessage(ACLMessage.INFORM);
             unassignedMsg.addReceiver(serverAgent);
-            unassignedMsg.setContent("UNASSIGNED_GOODS:" + gson.toJson(unassignedGoods));
+            unassignedMsg.setContent("UNASSIGNED_GOODS:" + RESULTS_GSON.toJson(unassignedGoods));
             send(unassignedMsg);
             logger.warning("Некоторые товары не удалось распределить: " + unassignedGoods);
         }
 
         logger.info("Распределение завершено. Сервер уведомлен.");
-        saveResultsToJson(distribution);
+        journalRun("distribution", distribution, unassignedGoods);
         ACLMessage endNotification = new ACLMessage(ACLMessage.INFORM);
         endNotification.addReceiver(serverAgent);
         endNotification.setContent("NOTIFICATION: Распределение товаров завершено.");
         send(endNotification);
+
+        ACLMessage completed = new ACLMessage(ACLMessage.INFORM);
+        completed.addReceiver(serverAgent);
+        completed.setContent("COMPLETED");
+        send(completed);
     }
 
 
+    /**
+     * Отправка назначений транспортным агентам в компактном двоичном формате
+     * (вместе с несовместимостями, чтобы транспорт мог проверить свой груз)
+     */
     private void sendAssignments(Map<String, List<Good>> distribution) {
-        Gson gson = new GsonBuilder()
-                .excludeFieldsWithoutExposeAnnotation() // Добавьте настройку
-                .create();
-
+        long start = System.nanoTime();
         distribution.forEach((vehicleName, goods) -> {
             ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
             msg.addReceiver(new AID(vehicleName, AID.ISLOCALNAME));
-            msg.setContent(gson.toJson(goods)); // Теперь сериализация с учетом @Expose
+            msg.setConversationId(ASSIGNMENT_CONVERSATION);
+            msg.setLanguage(GoodsCodec.LANGUAGE);
+            msg.setByteSequenceContent(GoodsCodec.encode(goods));
             send(msg);
         });
+        recordTiming("assignment_send", start);
     }
-    public void saveResultsToJson(Map<String, List<Good>> distribution) {
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().create();
-
-        String fileName = "distribution_results.json";
-
-        try (FileWriter writer = new FileWriter(fileName)) {
-            gson.toJson(distribution, writer);
-            System.out.println("Результаты сохранены в файл: " + fileName);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Запись запуска в журнал. На потоке агента выполняется только копирование ссылок,
+     * сериализация и запись - в потоке журнала.
+     *
+     * @param kind distribution (полное распределение) или update (изменение плана)
+     */
+    private void journalRun(String kind, Map<String, List<Good>> distribution, List<Good> unassignedGoods) {
+        RunJournal journal = openJournal();
+        if (journal == null) {
+            return;
         }
+        long start = System.nanoTime();
+        Map<String, List<Good>> plan = new HashMap<>();
+        Map<String, Integer> capacities = new HashMap<>();
+        List<Good> planGoods = new ArrayList<>(unassignedGoods);
+        distribution.forEach((vehicleName, vehicleGoods) -> {
+            plan.put(vehicleName, new ArrayList<>(vehicleGoods));
+            planGoods.addAll(vehicleGoods);
+            Integer capacity = knownCapacities.get(vehicleName);
+            if (capacity != null) {
+                capacities.put(vehicleName, capacity);
+            }
+        });
+        RunJournal.Run run = new RunJournal.Run(getLocalName(), kind, plan, new ArrayList<>(unassignedGoods));
+        // Хэш полного распределения совпадает с ключом кэша результатов; для изменений - хэш текущего плана
+        run.setInputs(goods != null && kind.equals("distribution") ? new ArrayList<>(goods) : planGoods, capacities, options);
+        run.setTimings(new LinkedHashMap<>(runTimings));
+        long id = journal.append(run);
+        recordTiming("result_save", start);
+        logger.info("Запуск записывается в журнал: run-" + id);
+        sendToServer("NOTIFICATION: План записывается в журнал запусков как run-" + id + ".");
     }
-    private boolean isGoodFullyAssigned(Good good, Map<String, List<Good>> distribution) {
-        String normalizedId = good.normalizeId(good.getId());
-        boolean isPart = good.getId().matches(".*_part\\d+$");
 
-        // Если это часть, проверяем её наличие в распределении
-        if (isPart) {
-            return distribution.values().stream()
-                    .flatMap(List::stream)
-                    .anyMatch(g -> g.getId().equals(good.getId()));
+    private RunJournal openJournal() {
+        try {
+            return RunJournal.open(options.getJournal(), options.getJournalSegment());
+        } catch (IOException e) {
+            logger.severe("Не удалось открыть журнал запусков " + options.getJournal() + ": " + e.getMessage());
+            return null;
         }
+    }
 
-        // Если это целый товар, проверяем все его части
-        List<Good> allParts = goods.stream()
-                .filter(g -> g.normalizeId(g.getId()).equals(normalizedId))
-                .collect(Collectors.toList());
-
-        long assignedParts = distribution.values().stream()
-                .flatMap(List::stream)
-                .filter(g -> g.normalizeId(g.getId()).equals(normalizedId))
-                .count();
-
-        return assignedParts == allParts.size();
+    /**
+     * Учет длительности этапа: гистограмма model.<этап> и длительности текущего запуска
+     */
+    private void recordTiming(String name, long start) {
+        long elapsed = System.nanoTime() - start;
+        Metrics.histogram("model." + name).record(elapsed);
+        runTimings.merge(name, elapsed / 1000, Long::sum);
     }
+
+    /**
+     * Опрос грузоподъемности транспорта. Запросы отправляются всем транспортным агентам
+     * сразу, ответы собираются до общего срока, поэтому опрос занимает один цикл
+     * обмена сообщениями независимо от размера парка. Опрос одновременно проверяет,
+     * что транспорт жив, поэтому опрашивается весь транспорт, в том числе уже известный:
+     * выбывший после прошлого запуска транспорт не попадает в план.
+     * Транспорт, не ответивший вовремя, исключается из распределения.
+     */
     private Map<String, Integer> getVehicleCapacities() {
+        String conversationId = "capacity-" + getLocalName() + "-" + (++discoveryCounter);
+        Map<String, String> pendingReplies = new HashMap<>(); // reply-with -> имя транспорта
         Map<String, Integer> capacities = new HashMap<>();
         for (Map.Entry<String, AID> entry : vehicleAgents.entrySet()) {
             String vehicleName = entry.getKey();
-            AID vehicleAID = entry.getValue();
-
             // Отправляем запрос на получение грузоподъемности
             ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-            msg.addReceiver(vehicleAID);
+            msg.addReceiver(entry.getValue());
             msg.setContent("GET_CAPACITY");
+            msg.setConversationId(conversationId);
+            msg.setReplyWith(conversationId + "-" + vehicleName);
             send(msg);
+            pendingReplies.put(msg.getReplyWith(), vehicleName);
+        }
 
-            // Ждем ответа
-            ACLMessage reply = blockingReceive(MessageTemplate.MatchSender(vehicleAID));
-            if (reply != null && reply.getPerformative() == ACLMessage.INFORM) {
-                int capacity = Integer.parseInt(reply.getContent());
-                capacities.put(vehicleName, capacity);
-                logger.info("Грузоподъемность " + vehicleName + ": " + capacity + " кг.");
+        // Собираем ответы до общего срока
+        MessageTemplate template = MessageTemplate.MatchConversationId(conversationId);
+        long deadline = System.currentTimeMillis() + options.getDiscoveryTimeout();
+        while (!pendingReplies.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            ACLMessage reply = blockingReceive(template, remaining);
+            if (reply == null) {
+                break;
+            }
+            String vehicleName = pendingReplies.remove(reply.getInReplyTo());
+            if (vehicleName == null) {
+                continue;
+            }
+            if (reply.getPerformative() == ACLMessage.INFORM) {
+                try {
+                    int capacity = Integer.parseInt(reply.getContent());
+                    knownCapacities.put(vehicleName, capacity);
+                    capacities.put(vehicleName, capacity);
+                    logger.info("Грузоподъемность " + vehicleName + ": " + capacity + " кг.");
+                } catch (NumberFormatException e) {
+                    logger.warning("Некорректная грузоподъемность от " + vehicleName + ": " + reply.getContent());
+                }
             } else {
                 logger.warning("Не удалось получить грузоподъемность от " + vehicleName);
             }
         }
+        for (String vehicleName : pendingReplies.values()) {
+            logger.warning("Транспорт " + vehicleName + " не ответил и исключен из распределения");
+        }
         return capacities;
     }
 }
\ No newline at end of file
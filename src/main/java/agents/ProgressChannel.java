@@ -0,0 +1,143 @@
+package agents;
+
+import com.google.gson.Gson;
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import model.DistributionEvent;
+import model.DistributionListener;
+import model.ProgressSummary;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Канал уведомлений о ходе распределения от ModelAgent к серверу.
+ * События не пересылаются по одному, а накапливаются и отправляются
+ * периодическими сводками (не чаще интервала отправки или по заполнении пакета).
+ * Если сервер не успевает подтверждать сводки, новые сводки не отправляются,
+ * а события агрегируются в следующую сводку.
+ *
+ * Каждый запуск ведет отдельный диалог (progress-N), поэтому запоздавшие подтверждения
+ * предыдущего запуска не засчитываются текущему; при создании канала они отбрасываются.
+ */
+public class ProgressChannel implements DistributionListener {
+    public static final String CONVERSATION_ID = "progress";
+    // Подтверждения всех диалогов сводок, в том числе завершенных запусков
+    public static final MessageTemplate TEMPLATE = new MessageTemplate((MessageTemplate.MatchExpression) msg ->
+            msg.getConversationId() != null && msg.getConversationId().startsWith(CONVERSATION_ID));
+    private static final AtomicLong RUNS = new AtomicLong();
+
+    private static final Gson GSON = new Gson();
+
+    private final Agent agent;
+    private final AID server;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+    private final int maxInFlight;
+    private final String conversationId;
+    private final MessageTemplate ackTemplate;
+
+    private final Map<DistributionEvent.Type, Integer> counts = new EnumMap<>(DistributionEvent.Type.class);
+    private final Map<String, Integer> vehicleLoads = new LinkedHashMap<>();
+    private final Deque<String> recent = new ArrayDeque<>();
+    private int pending;
+    private int dropped;
+    private long sequence;
+    private long acknowledged;
+    private long lastFlush = System.currentTimeMillis();
+
+    /**
+     * @param agent агент-отправитель
+     * @param server сервер
+     * @param flushIntervalMillis интервал отправки сводок
+     * @param maxBatchSize максимальное количество событий в сводке
+     * @param maxInFlight максимальное количество неподтвержденных сводок
+     */
+    public ProgressChannel(Agent agent, AID server, long flushIntervalMillis, int maxBatchSize, int maxInFlight) {
+        this.agent = agent;
+        this.server = server;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.conversationId = CONVERSATION_ID + "-" + RUNS.incrementAndGet();
+        this.ackTemplate = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.CONFIRM),
+                MessageTemplate.MatchConversationId(conversationId)
+        );
+        // Подтверждения последних сводок предыдущих запусков больше не нужны
+        while (agent.receive(TEMPLATE) != null) {
+            // отбрасываются
+        }
+    }
+
+    @Override
+    public void onEvent(DistributionEvent event) {
+        counts.merge(event.getType(), 1, Integer::sum);
+        if (event.getType() == DistributionEvent.Type.ASSIGNMENT) {
+            vehicleLoads.merge(event.getVehicle(), event.getWeight(), Integer::sum);
+        } else if (event.getType() == DistributionEvent.Type.WEIGHT_REPORT) {
+            vehicleLoads.put(event.getVehicle(), event.getWeight());
+        }
+        if (event.getType() != DistributionEvent.Type.WEIGHT_REPORT) {
+            recent.addLast(event.getMessage());
+            if (recent.size() > maxBatchSize) {
+                recent.removeFirst();
+                dropped++;
+            }
+        }
+        pending++;
+
+        if (pending >= maxBatchSize || System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+            flush(false);
+        }
+    }
+
+    /**
+     * Отправка итоговой сводки независимо от количества неподтвержденных.
+     * Уже полученные подтверждения забираются из очереди агента.
+     */
+    public void close() {
+        flush(true);
+        drainAcknowledgements();
+    }
+
+    private void flush(boolean last) {
+        lastFlush = System.currentTimeMillis();
+        drainAcknowledgements();
+        if (!last && sequence - acknowledged >= maxInFlight) {
+            // Сервер не успевает: события агрегируются в следующую сводку
+            return;
+        }
+        if (pending == 0 && !last) {
+            return;
+        }
+        Map<String, Integer> countsByName = new LinkedHashMap<>();
+        counts.forEach((type, count) -> countsByName.put(type.name(), count));
+        ProgressSummary summary = new ProgressSummary(++sequence, countsByName, vehicleLoads,
+                recent.stream().toList(), dropped, last);
+
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(server);
+        msg.setConversationId(conversationId);
+        msg.setReplyWith(conversationId + "." + sequence);
+        msg.setContent("PROGRESS:" + GSON.toJson(summary));
+        agent.send(msg);
+
+        recent.clear();
+        pending = 0;
+        dropped = 0;
+    }
+
+    private void drainAcknowledgements() {
+        ACLMessage ack;
+        while ((ack = agent.receive(ackTemplate)) != null) {
+            acknowledged++;
+        }
+    }
+}
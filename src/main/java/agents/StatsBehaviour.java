@@ -0,0 +1,65 @@
+package agents;
+
+import com.google.gson.Gson;
+import jade.core.Agent;
+import jade.core.behaviours.CyclicBehaviour;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Ответ на запрос статистики агента (REQUEST "GET_STATS" в диалоге "stats").
+ * Ответ - INFORM с JSON-объектом: имя агента, длина очереди входящих сообщений,
+ * счетчики отправленных и полученных сообщений и показатели, специфичные для агента.
+ * Используется нагрузочным тестированием для наблюдения за системой во время работы.
+ */
+public class StatsBehaviour extends CyclicBehaviour {
+    public static final String CONVERSATION_ID = "stats";
+    public static final String REQUEST = "GET_STATS";
+    // Шаблон запроса; остальные поведения агента должны исключать этот диалог
+    public static final MessageTemplate TEMPLATE = MessageTemplate.and(
+            MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+            MessageTemplate.MatchConversationId(CONVERSATION_ID)
+    );
+    private static final Gson GSON = new Gson();
+
+    private final Supplier<Map<String, Object>> details;
+
+    /**
+     * @param agent агент
+     * @param details показатели агента (вызывается в потоке агента)
+     */
+    public StatsBehaviour(Agent agent, Supplier<Map<String, Object>> details) {
+        super(agent);
+        this.details = details;
+    }
+
+    @Override
+    public void action() {
+        ACLMessage msg = myAgent.receive(TEMPLATE);
+        if (msg == null) {
+            block();
+            return;
+        }
+        MessageEvent event = MessageEvent.begin(myAgent, "StatsBehaviour", msg);
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("agent", myAgent.getLocalName());
+            stats.put("timestamp", System.currentTimeMillis());
+            stats.put("queue", myAgent.getCurQueueSize());
+            stats.put("sent", myAgent.getSentMessagesCnt());
+            stats.put("received", myAgent.getReceivedMessagesCnt());
+            stats.putAll(details.get());
+
+            ACLMessage reply = msg.createReply();
+            reply.setPerformative(ACLMessage.INFORM);
+            reply.setContent(GSON.toJson(stats));
+            myAgent.send(reply);
+        } finally {
+            event.commit();
+        }
+    }
+}
@@ -3,21 +3,52 @@ package agents;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
-import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.CyclicBehaviour;
+import jade.domain.FIPAAgentManagement.FailureException;
+import jade.domain.FIPAAgentManagement.RefuseException;
+import jade.domain.FIPANames;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
+import jade.proto.ContractNetResponder;
 import model.Good;
+import model.GoodsCodec;
+import model.VehicleCargo;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 public class VehicleAgent extends Agent {
-    private List<Good> assignedGoods = new ArrayList<>();
+    // Gson потокобезопасен, поэтому экземпляры и типы создаются один раз
+    private static final Gson GSON = new Gson();
+    private static final Type GOODS_TYPE = new TypeToken<List<Good>>() {}.getType();
+    private static final Type IDS_TYPE = new TypeToken<List<String>>() {}.getType();
+    // Время ожидания ответа на предложение после срока объявления, мс
+    private static final long BID_GRACE_MILLIS = 5000;
+
+    /**
+     * Предложение, ожидающее ответа инициатора: товары и срок, после которого
+     * предложение считается оставленным без ответа
+     */
+    private static final class PendingBid {
+        final List<Good> goods;
+        final long expires;
+
+        PendingBid(List<Good> goods, long expires) {
+            this.goods = goods;
+            this.expires = expires;
+        }
+    }
+
     private int capacity; // Грузоподъемность автомобиля
+    private VehicleCargo cargo; // Принятый груз с индексом несовместимостей
+    private final Map<String, PendingBid> pendingBids = new HashMap<>(); // Предложения по диалогам
     private Logger logger;
 
     public VehicleAgent() {
@@ -35,10 +66,41 @@ public class VehicleAgent extends Agent {
         } else {
             this.capacity = 0; // Значение по умолчанию
         }
+        cargo = new VehicleCargo(capacity);
         logger = Logger.getLogger(this.getClass().getName());
         logger.info("VehicleAgent " + getLocalName() + " запущен.");
         addBehaviour(new AssignmentBehaviour());
         addBehaviour(new CapacityRequestBehaviour());
+        addBehaviour(new BiddingBehaviour());
+        addBehaviour(new StatsBehaviour(this, () -> {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("capacity", capacity);
+            stats.put("load", cargo.getLoad());
+            stats.put("goods", cargo.getGoods().size());
+            stats.put("pendingBids", pendingBids.size());
+            return stats;
+        }));
+    }
+
+    /**
+     * Чтение списка товаров из сообщения: двоичный формат GoodsCodec или JSON
+     *
+     * @throws IllegalArgumentException если содержимое не удалось разобрать
+     */
+    private List<Good> readGoods(ACLMessage msg) {
+        if (GoodsCodec.LANGUAGE.equals(msg.getLanguage())) {
+            return GoodsCodec.decode(msg.getByteSequenceContent());
+        }
+        List<Good> goods;
+        try {
+            goods = GSON.fromJson(msg.getContent(), GOODS_TYPE);
+        } catch (JsonSyntaxException e) {
+            throw new IllegalArgumentException("Ошибка парсинга JSON: " + msg.getContent(), e);
+        }
+        if (goods == null) {
+            throw new IllegalArgumentException("Пустой список товаров: " + msg.getContent());
+        }
+        return goods;
     }
     private class CapacityRequestBehaviour extends CyclicBehaviour {
         @Override
@@ -50,11 +112,16 @@ public class VehicleAgent extends Agent {
             );
             ACLMessage msg = receive(template);
             if (msg != null) {
-                // Отправляем грузоподъемность
-                ACLMessage reply = msg.createReply();
-                reply.setPerformative(ACLMessage.INFORM);
-                reply.setContent(String.valueOf(capacity));
-                send(reply);
+                MessageEvent event = MessageEvent.begin(myAgent, "CapacityRequestBehaviour", msg);
+                try {
+                    // Отправляем грузоподъемность
+                    ACLMessage reply = msg.createReply();
+                    reply.setPerformative(ACLMessage.INFORM);
+                    reply.setContent(String.valueOf(capacity));
+                    send(reply);
+                } finally {
+                    event.commit();
+                }
             } else {
                 block();
             }
@@ -64,46 +131,173 @@ public class VehicleAgent extends Agent {
     private class AssignmentBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            // Ожидаем сообщения с перформативом REQUEST и JSON-данными (не "GET_CAPACITY")
+            // Ожидаем сообщения с перформативом REQUEST: пакет товаров, RELEASE:<json-список id> или RESET
             MessageTemplate template = MessageTemplate.and(
                     MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
-                    MessageTemplate.not(
-                            MessageTemplate.MatchContent("GET_CAPACITY")
-                    )
+                    MessageTemplate.not(MessageTemplate.or(
+                            MessageTemplate.MatchContent("GET_CAPACITY"),
+                            MessageTemplate.MatchConversationId(StatsBehaviour.CONVERSATION_ID)
+                    ))
             );
             ACLMessage msg = receive(template);
-            if (msg != null) {
-                List<Good> goods = parseGoods(msg.getContent());
-                boolean isCompatible = checkCompatibility(goods);
-                sendResponse(msg.getSender(), isCompatible);
-            } else {
+            if (msg == null) {
                 block();
+                return;
+            }
+            MessageEvent event = MessageEvent.begin(myAgent, "AssignmentBehaviour", msg);
+            try {
+                if (!GoodsCodec.LANGUAGE.equals(msg.getLanguage()) && "RESET".equals(msg.getContent())) {
+                    cargo.clear();
+                    pendingBids.clear();
+                    logger.info(getLocalName() + ": груз снят");
+                    return;
+                }
+                if (!GoodsCodec.LANGUAGE.equals(msg.getLanguage()) && msg.getContent() != null
+                        && msg.getContent().startsWith("RELEASE:")) {
+                    release(msg);
+                    return;
+                }
+
+                List<Good> goods;
+                try {
+                    goods = readGoods(msg);
+                } catch (IllegalArgumentException e) {
+                    // Неразобранный пакет не принимается: отправитель должен это узнать
+                    logger.severe(e.getMessage());
+                    sendNotUnderstood(msg, e.getMessage());
+                    return;
+                }
+                // Пакет принимается целиком или отклоняется целиком
+                String reason = cargo.check(goods);
+                if (reason == null) {
+                    cargo.commit(goods);
+                    logger.info(getLocalName() + " принял " + goods.size() + " товаров, загрузка " + cargo.getLoad() + "/" + capacity);
+                } else {
+                    logger.warning(getLocalName() + " отклонил пакет: " + reason);
+                }
+                sendResponse(msg, reason);
+            } finally {
+                event.commit();
             }
         }
 
-        private List<Good> parseGoods(String json) {
+        private void release(ACLMessage msg) {
+            List<String> ids;
             try {
-                Gson gson = new Gson();
-                Type type = new TypeToken<List<Good>>() {}.getType();
-                return gson.fromJson(json, type);
+                ids = GSON.fromJson(msg.getContent().substring("RELEASE:".length()), IDS_TYPE);
             } catch (JsonSyntaxException e) {
-                logger.severe("Ошибка парсинга JSON: " + json);
-                return new ArrayList<>(); // Возвращаем пустой список вместо null
+                ids = null;
+            }
+            if (ids == null) {
+                logger.severe("Некорректный запрос снятия груза: " + msg.getContent());
+                sendNotUnderstood(msg, "Некорректный список товаров");
+                return;
+            }
+            int released = 0;
+            for (String id : ids) {
+                if (cargo.release(id)) {
+                    released++;
+                }
             }
+            logger.info(getLocalName() + ": снято " + released + " товаров, загрузка " + cargo.getLoad() + "/" + capacity);
         }
 
-        private void sendResponse(AID sender, boolean isCompatible) {
-            ACLMessage reply = new ACLMessage(isCompatible ? ACLMessage.CONFIRM : ACLMessage.REFUSE);
-            reply.addReceiver(sender);
-            reply.setContent(isCompatible ? "Принято" : "Несовместимость");
+        private void sendNotUnderstood(ACLMessage msg, String reason) {
+            ACLMessage reply = msg.createReply();
+            reply.setPerformative(ACLMessage.NOT_UNDERSTOOD);
+            reply.setLanguage(null);
+            reply.setContent(reason);
             send(reply);
         }
 
-        private boolean checkCompatibility(List<Good> newGoods) {
-            // Упрощенная проверка совместимости
-            return newGoods.stream().allMatch(good ->
-                    assignedGoods.stream().allMatch(good::isCompatibleWith)
-            );
+        private void sendResponse(ACLMessage msg, String reason) {
+            ACLMessage reply = msg.createReply();
+            reply.setPerformative(reason == null ? ACLMessage.CONFIRM : ACLMessage.REFUSE);
+            reply.setLanguage(null);
+            reply.setContent(reason == null ? "Принято" : reason);
+            send(reply);
+        }
+    }
+
+    /**
+     * Участие в распределении по протоколу Contract-Net: на объявленный пакет товаров
+     * транспорт предлагает подмножество, которое помещается в остаток грузоподъемности
+     * и совместимо с уже принятым грузом
+     */
+    private class BiddingBehaviour extends ContractNetResponder {
+        BiddingBehaviour() {
+            super(VehicleAgent.this, ContractNetResponder.createMessageTemplate(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET));
+        }
+
+        @Override
+        protected ACLMessage handleCfp(ACLMessage cfp) throws RefuseException {
+            // Предложения, на которые инициатор не ответил до срока, больше не ждут ответа
+            long now = System.currentTimeMillis();
+            pendingBids.values().removeIf(bid -> bid.expires <= now);
+
+            List<Good> offered;
+            try {
+                offered = readGoods(cfp);
+            } catch (IllegalArgumentException e) {
+                logger.severe(e.getMessage());
+                throw new RefuseException("Некорректное объявление");
+            }
+
+            // Жадный выбор: каждый следующий товар должен помещаться вместе с уже выбранными
+            List<Good> selected = cargo.select(offered);
+            List<String> ids = new ArrayList<>();
+            for (Good good : selected) {
+                ids.add(good.getId());
+            }
+            if (selected.isEmpty()) {
+                throw new RefuseException("Нет места или несовместимость");
+            }
+            long deadline = cfp.getReplyByDate() != null ? cfp.getReplyByDate().getTime() : now;
+            pendingBids.put(cfp.getConversationId(), new PendingBid(selected, deadline + BID_GRACE_MILLIS));
+
+            ACLMessage propose = cfp.createReply();
+            propose.setPerformative(ACLMessage.PROPOSE);
+            propose.setContent(GSON.toJson(new ContractNetBid(cargo.getResidual(), ids)));
+            return propose;
+        }
+
+        @Override
+        protected ACLMessage handleAcceptProposal(ACLMessage cfp, ACLMessage propose, ACLMessage accept)
+                throws FailureException {
+            PendingBid bid = pendingBids.remove(cfp.getConversationId());
+            List<String> accepted = GSON.fromJson(accept.getContent(), IDS_TYPE);
+            if (bid == null || accepted == null) {
+                throw new FailureException("Предложение не найдено");
+            }
+            List<Good> proposed = bid.goods;
+            // Груз мог измениться после предложения, поэтому принятое подмножество проверяется заново
+            Set<String> acceptedIds = new HashSet<>(accepted);
+            List<Good> batch = new ArrayList<>();
+            for (Good good : proposed) {
+                if (acceptedIds.contains(good.getId())) {
+                    batch.add(good);
+                }
+            }
+            String reason = cargo.check(batch);
+            if (reason != null) {
+                throw new FailureException(reason);
+            }
+            cargo.commit(batch);
+            logger.info(getLocalName() + " принял " + batch.size() + " товаров, загрузка " + cargo.getLoad() + "/" + capacity);
+            ACLMessage inform = accept.createReply();
+            inform.setPerformative(ACLMessage.INFORM);
+            inform.setContent("Принято");
+            return inform;
+        }
+
+        @Override
+        protected void handleRejectProposal(ACLMessage cfp, ACLMessage propose, ACLMessage reject) {
+            pendingBids.remove(cfp.getConversationId());
+        }
+
+        @Override
+        protected void handleOutOfSequence(ACLMessage cfp, ACLMessage propose, ACLMessage msg) {
+            pendingBids.remove(cfp.getConversationId());
         }
     }
-}
\ No newline at end of file
+}
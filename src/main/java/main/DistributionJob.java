@@ -0,0 +1,75 @@
+package main;
+
+import jade.core.AID;
+import jade.wrapper.AgentController;
+
+/**
+ * Задание на распределение товаров: владелец (клиент, запустивший задание),
+ * состояние и агент-модель, выполняющий расчет
+ */
+class DistributionJob {
+    /**
+     * Состояния задания
+     */
+    enum State {
+        QUEUED,    // Ожидает свободного исполнителя
+        RUNNING,   // Выполняется агентом-моделью
+        COMPLETED, // Результаты отправлены владельцу
+        FAILED,    // Распределение невозможно
+        CANCELLED  // Отменено клиентом или сервером
+    }
+
+    private final String id;
+    private final AID owner;
+    private final long submittedAt;
+    private State state = State.QUEUED;
+    private String modelName;
+    private AgentController modelAgent;
+    private long startedAt;
+    private long finishedAt;
+
+    DistributionJob(String id, AID owner) {
+        this.id = id;
+        this.owner = owner;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    // Геттеры
+    String getId() { return id; }
+    AID getOwner() { return owner; }
+    State getState() { return state; }
+    String getModelName() { return modelName; }
+    AgentController getModelAgent() { return modelAgent; }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    void start(String modelName, AgentController modelAgent) {
+        this.modelName = modelName;
+        this.modelAgent = modelAgent;
+        this.state = State.RUNNING;
+        this.startedAt = System.currentTimeMillis();
+    }
+
+    void finish(State state) {
+        this.state = state;
+        this.finishedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Краткое описание для ответов клиенту
+     */
+    String describe() {
+        StringBuilder sb = new StringBuilder(id).append(": ").append(state)
+                .append(", владелец ").append(owner.getLocalName());
+        if (state == State.QUEUED) {
+            sb.append(", в очереди ").append(System.currentTimeMillis() - submittedAt).append(" мс");
+        } else if (state == State.RUNNING) {
+            sb.append(", выполняется ").append(System.currentTimeMillis() - startedAt).append(" мс");
+        } else if (startedAt > 0) {
+            sb.append(", длительность ").append(finishedAt - startedAt).append(" мс");
+        }
+        return sb.toString();
+    }
+}
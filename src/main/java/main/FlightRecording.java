@@ -0,0 +1,65 @@
+package main;
+
+import agents.MessageEvent;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import model.PhaseEvent;
+import model.SplitDecisionEvent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Непрерывная запись JFR на время работы сервера: события JVM (по набору настроек
+ * "default" или "profile") вместе с собственными событиями распределения -
+ * этапами алгоритма, обработкой ACL-сообщений и разделением товаров.
+ * Хранятся данные за последние maxAge; снимок сохраняется по команде и при остановке сервера.
+ */
+class FlightRecording {
+    private final Recording recording;
+    private final Path destination;
+
+    /**
+     * Запуск записи
+     *
+     * @param destination файл записи (.jfr)
+     * @param settings набор настроек JFR: default или profile
+     * @param maxAge срок хранения событий
+     */
+    FlightRecording(Path destination, String settings, Duration maxAge) throws IOException, ParseException {
+        this.destination = destination;
+        recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName("distribution");
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.enable(PhaseEvent.class).withoutThreshold();
+        recording.enable(SplitDecisionEvent.class).withoutThreshold();
+        recording.enable(MessageEvent.class).withoutThreshold();
+        recording.setDestination(destination);
+        recording.start();
+    }
+
+    /**
+     * Сохранение снимка записи без ее остановки
+     *
+     * @return файл снимка
+     */
+    Path dump() throws IOException {
+        recording.dump(destination);
+        return destination;
+    }
+
+    /**
+     * Остановка записи; накопленные события сохраняются в файл записи.
+     * При завершении JVM запись может быть уже остановлена (и сохранена) самим JFR.
+     */
+    void stop() {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        recording.close();
+    }
+}
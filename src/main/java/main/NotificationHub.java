@@ -0,0 +1,295 @@
+package main;
+
+import jade.core.AID;
+import jade.core.Agent;
+import jade.lang.acl.ACLMessage;
+import model.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Рассылка уведомлений клиентам по темам.
+ * Каждый клиент подписан на набор тем и имеет ограниченную очередь исходящих уведомлений:
+ * при переполнении отбрасывается самое старое событие или сводка (EVENTS, PROGRESS), а сводка
+ * о ходе распределения заменяет еще не отправленную предыдущую сводку. Результаты и состояние
+ * (RESULTS, STATUS) не отбрасываются: если очередь заполнена только ими, клиент не успевает
+ * их получать, поэтому его очередь очищается, он исключается из рассылки и передается серверу
+ * для отключения (takeOverflowed). Очередь никогда не превышает заданный размер. Публикация только ставит уведомление в очереди;
+ * при отправке клиенты, ожидающие одно и то же уведомление, получают одно общее
+ * сообщение с несколькими получателями, поэтому количество отправок на событие
+ * не растет с количеством клиентов.
+ */
+class NotificationHub {
+    /**
+     * Темы уведомлений
+     */
+    enum Topic {
+        STATUS,   // Состояние сервера и процесса распределения
+        EVENTS,   // Воспроизводимый журнал событий
+        PROGRESS, // Сводки о ходе распределения
+        RESULTS;  // Результаты и нераспределенные товары
+
+        /**
+         * Может ли уведомление темы быть отброшено при переполнении очереди
+         */
+        boolean isDroppable() {
+            return this == EVENTS || this == PROGRESS;
+        }
+    }
+
+    /**
+     * Уведомление, общее для всех подписчиков темы
+     */
+    private static final class Notification {
+        final Topic topic;
+        final String text;
+
+        Notification(Topic topic, String text) {
+            this.topic = topic;
+            this.text = text;
+        }
+    }
+
+    private static final class Subscriber {
+        final AID client;
+        final Set<Topic> topics = EnumSet.allOf(Topic.class);
+        final Deque<Notification> queue = new ArrayDeque<>();
+        long dropped;
+        boolean overflowed; // Очередь переполнена результатами, клиент ожидает отключения
+
+        Subscriber(AID client) {
+            this.client = client;
+        }
+    }
+
+    private final Agent agent;
+    private final int queueCapacity;
+    private final int burst;
+    private final Map<AID, Subscriber> subscribers = new LinkedHashMap<>();
+    private final List<AID> overflowed = new ArrayList<>();
+
+    /**
+     * @param agent агент-отправитель
+     * @param queueCapacity размер очереди уведомлений каждого клиента
+     * @param burst максимальное количество уведомлений одному клиенту за одну отправку
+     */
+    NotificationHub(Agent agent, int queueCapacity, int burst) {
+        this.agent = agent;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.burst = Math.max(1, burst);
+    }
+
+    void addClient(AID client) {
+        subscribers.putIfAbsent(client, new Subscriber(client));
+    }
+
+    void removeClient(AID client) {
+        subscribers.remove(client);
+        overflowed.remove(client);
+    }
+
+    /**
+     * Клиенты, очередь которых переполнена результатами и состоянием, с момента
+     * прошлого вызова. Уведомления им больше не ставятся в очередь; сервер должен их отключить.
+     */
+    List<AID> takeOverflowed() {
+        List<AID> clients = new ArrayList<>(overflowed);
+        overflowed.clear();
+        return clients;
+    }
+
+    /**
+     * Изменение подписки клиента
+     *
+     * @param client клиент
+     * @param spec список тем через запятую (status, events, progress, results) или all
+     * @return итоговый набор тем
+     * @throws IllegalArgumentException если тема неизвестна
+     */
+    Set<Topic> subscribe(AID client, String spec) {
+        Subscriber subscriber = subscribers.get(client);
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Клиент не подключен");
+        }
+        Set<Topic> topics = EnumSet.noneOf(Topic.class);
+        for (String name : spec.split(",")) {
+            String topic = name.trim().toUpperCase(Locale.ROOT);
+            if (topic.equals("ALL")) {
+                topics.addAll(EnumSet.allOf(Topic.class));
+            } else if (!topic.isEmpty()) {
+                topics.add(Topic.valueOf(topic));
+            }
+        }
+        subscriber.topics.clear();
+        subscriber.topics.addAll(topics);
+        // Уже поставленные в очередь уведомления отписанных тем не отправляются
+        subscriber.queue.removeIf(notification -> !topics.contains(notification.topic));
+        return topics;
+    }
+
+    /**
+     * Подписан ли клиент на тему
+     */
+    boolean isSubscribed(AID client, Topic topic) {
+        Subscriber subscriber = subscribers.get(client);
+        return subscriber != null && subscriber.topics.contains(topic);
+    }
+
+    /**
+     * Постановка уведомления в очереди подписчиков темы
+     *
+     * @param topic тема
+     * @param text текст уведомления
+     * @param recipient единственный получатель или null для всех подписчиков
+     */
+    void publish(Topic topic, String text, AID recipient) {
+        Notification notification = new Notification(topic, text);
+        if (recipient != null) {
+            Subscriber subscriber = subscribers.get(recipient);
+            if (subscriber != null && !subscriber.overflowed && subscriber.topics.contains(topic)) {
+                enqueue(subscriber, notification);
+            }
+            return;
+        }
+        for (Subscriber subscriber : subscribers.values()) {
+            if (!subscriber.overflowed && subscriber.topics.contains(topic)) {
+                enqueue(subscriber, notification);
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Notification notification) {
+        Deque<Notification> queue = subscriber.queue;
+        if (notification.topic == Topic.PROGRESS && !queue.isEmpty() && queue.peekLast().topic == Topic.PROGRESS) {
+            // Новая сводка заменяет еще не отправленную
+            queue.pollLast();
+            subscriber.dropped++;
+        } else if (queue.size() >= queueCapacity) {
+            // Место освобождает самое старое событие или сводка; результаты и состояние остаются
+            Iterator<Notification> iterator = queue.iterator();
+            boolean evicted = false;
+            while (iterator.hasNext()) {
+                if (iterator.next().topic.isDroppable()) {
+                    iterator.remove();
+                    evicted = true;
+                    break;
+                }
+            }
+            if (!evicted && notification.topic.isDroppable()) {
+                // Очередь заполнена результатами: отбрасывается само новое событие
+                subscriber.dropped++;
+                return;
+            }
+            if (!evicted) {
+                // Результаты отбросить нельзя, а очередь не растет сверх размера: клиент отключается
+                subscriber.dropped += queue.size() + 1;
+                queue.clear();
+                subscriber.overflowed = true;
+                overflowed.add(subscriber.client);
+                return;
+            }
+            subscriber.dropped++;
+        }
+        queue.addLast(notification);
+    }
+
+    /**
+     * Отправка накопленных уведомлений: по одному сообщению на каждое уведомление
+     * для всех клиентов, у которых оно следующее в очереди
+     *
+     * @return количество отправленных ACL-сообщений
+     */
+    int flush() {
+        int sent = 0;
+        Map<Subscriber, Integer> budget = new IdentityHashMap<>();
+        while (true) {
+            Map<Notification, List<Subscriber>> heads = new IdentityHashMap<>();
+            List<Notification> order = new ArrayList<>();
+            for (Subscriber subscriber : subscribers.values()) {
+                Notification head = subscriber.queue.peekFirst();
+                if (head == null || budget.getOrDefault(subscriber, 0) >= burst) {
+                    continue;
+                }
+                List<Subscriber> receivers = heads.get(head);
+                if (receivers == null) {
+                    receivers = new ArrayList<>();
+                    heads.put(head, receivers);
+                    order.add(head);
+                }
+                receivers.add(subscriber);
+            }
+            if (order.isEmpty()) {
+                return sent;
+            }
+            for (Notification notification : order) {
+                send(notification, heads.get(notification));
+                sent++;
+            }
+            for (List<Subscriber> receivers : heads.values()) {
+                for (Subscriber subscriber : receivers) {
+                    subscriber.queue.pollFirst();
+                    budget.merge(subscriber, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Количество отброшенных или замененных уведомлений клиента
+     */
+    long getDropped(AID client) {
+        Subscriber subscriber = subscribers.get(client);
+        return subscriber != null ? subscriber.dropped : 0;
+    }
+
+    /**
+     * Количество уведомлений, ожидающих отправки клиенту
+     */
+    int getQueueDepth(AID client) {
+        Subscriber subscriber = subscribers.get(client);
+        return subscriber != null ? subscriber.queue.size() : 0;
+    }
+
+    /**
+     * Суммарное количество уведомлений, ожидающих отправки
+     */
+    int getTotalQueueDepth() {
+        int depth = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            depth += subscriber.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Суммарное количество отброшенных или замененных уведомлений
+     */
+    long getTotalDropped() {
+        long dropped = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            dropped += subscriber.dropped;
+        }
+        return dropped;
+    }
+
+    private void send(Notification notification, List<Subscriber> receivers) {
+        ACLMessage message = new ACLMessage(ACLMessage.INFORM);
+        for (Subscriber subscriber : receivers) {
+            message.addReceiver(subscriber.client);
+        }
+        message.addUserDefinedParameter("topic", notification.topic.name().toLowerCase(Locale.ROOT));
+        message.setContent("NOTIFICATION: " + notification.text);
+        agent.send(message);
+        Metrics.counter("server.out.notification." + notification.topic.name().toLowerCase(Locale.ROOT)).increment();
+    }
+}
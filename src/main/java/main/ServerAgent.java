@@ -1,5 +1,8 @@
 package main;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
 import jade.core.Agent;
 import jade.core.AID;
 import jade.core.behaviours.*;
@@ -11,10 +14,30 @@ import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import jade.wrapper.AgentController;
 import jade.wrapper.ContainerController;
-
+import agents.MessageEvent;
+import agents.ModelAgent;
+import agents.StatsBehaviour;
+import model.DistributionEvent;
+import model.Good;
+import model.Metrics;
+import model.PlanDelta;
+import model.ProgressSummary;
+import model.RunJournal;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -23,14 +46,109 @@ import java.util.logging.Logger;
  * и обеспечивающий подключение клиентов через терминал
  */
 public class ServerAgent extends Agent {
+    // Gson потокобезопасен, поэтому экземпляры и типы создаются один раз
+    private static final Gson GSON = new Gson();
+    private static final Type EVENTS_TYPE = new TypeToken<List<DistributionEvent>>() {}.getType();
+    private static final String HEARTBEAT_CONVERSATION = "heartbeat";
+    private static final int FINISHED_JOBS_KEPT = 100; // Количество хранимых завершенных заданий
+
+    /**
+     * Уведомление, ожидающее воспроизведения: тема, получатель и текст
+     */
+    private static final class PendingNotification {
+        final NotificationHub.Topic topic;
+        final AID recipient;
+        final String message;
+
+        PendingNotification(NotificationHub.Topic topic, AID recipient, String message) {
+            this.topic = topic;
+            this.recipient = recipient;
+            this.message = message;
+        }
+    }
     private List<AID> connectedClients = new ArrayList<>();
-    private boolean processRunning = false;
     private Logger logger = Logger.getLogger(getClass().getName());
-    private Map<String, AgentController> runningAgents = new HashMap<>();
+    private int workers = 2; // Количество одновременно выполняемых заданий
+    private final Map<String, DistributionJob> jobs = new LinkedHashMap<>();        // Задания по id
+    private final Map<String, DistributionJob> jobsByModel = new HashMap<>();      // Задания по имени агента-модели
+    private final Deque<DistributionJob> jobQueue = new ArrayDeque<>();
+    private int jobCounter;
+    private int retain = 4; // Количество завершенных заданий, агенты-модели которых сохраняются для изменений плана
+    private final Deque<DistributionJob> retainedJobs = new ArrayDeque<>();
+    private long replayDelay = 2000; // Темп воспроизведения журнала событий, мс
+    private final Map<String, Deque<PendingNotification>> replayQueues = new LinkedHashMap<>(); // Очереди воспроизведения по заданиям
+    private long heartbeatInterval = 5000; // Период отправки пингов клиентам, мс
+    private long leaseDuration = 15000;    // Срок аренды: клиент без ответов дольше этого срока отключается, мс
+    private final Map<AID, Long> leases = new HashMap<>();       // Время последней активности клиента
+    private final Map<String, Long> pendingPings = new HashMap<>(); // Пинг (reply-with) -> время отправки
+    private long pingCounter;
+    private int notifyQueue = 100;   // Размер очереди уведомлений каждого клиента
+    private int notifyBurst = 20;    // Максимум уведомлений одному клиенту за такт отправки
+    private long notifyFlush = 100;  // Период отправки уведомлений, мс
+    private NotificationHub notificationHub;
+    private final List<String> modelOptions = new ArrayList<>(); // Параметры распределения для ModelAgent (key=value)
+    private String jfrFile;                // Файл непрерывной записи JFR (null - запись не ведется)
+    private String jfrSettings = "default"; // Набор настроек JFR: default или profile
+    private long jfrMaxAge = 30;           // Срок хранения событий записи, мин
+    private FlightRecording flightRecording;
+    private String journalDir = RunJournal.DEFAULT_DIRECTORY;          // Каталог журнала запусков (общий с ModelAgent)
+    private long journalSegment = RunJournal.DEFAULT_SEGMENT_SIZE;
 
     protected void setup() {
         logger.info("Сервер распределения товаров запущен и ожидает подключения клиентов");
 
+        Object[] args = getArguments();
+        if (args != null) {
+            for (Object arg : args) {
+                String value = String.valueOf(arg);
+                try {
+                    if (value.startsWith("replay=")) {
+                        replayDelay = Long.parseLong(value.substring(7).trim());
+                    } else if (value.startsWith("heartbeat=")) {
+                        heartbeatInterval = Long.parseLong(value.substring(10).trim());
+                    } else if (value.startsWith("lease=")) {
+                        leaseDuration = Long.parseLong(value.substring(6).trim());
+                    } else if (value.startsWith("workers=")) {
+                        workers = Math.max(1, Integer.parseInt(value.substring(8).trim()));
+                    } else if (value.startsWith("retain=")) {
+                        retain = Math.max(0, Integer.parseInt(value.substring(7).trim()));
+                    } else if (value.startsWith("notify.queue=")) {
+                        notifyQueue = Integer.parseInt(value.substring(13).trim());
+                    } else if (value.startsWith("notify.burst=")) {
+                        notifyBurst = Integer.parseInt(value.substring(13).trim());
+                    } else if (value.startsWith("notify.flush=")) {
+                        notifyFlush = Long.parseLong(value.substring(13).trim());
+                    } else if (value.startsWith("jfr=")) {
+                        jfrFile = value.substring(4).trim();
+                    } else if (value.startsWith("jfr.settings=")) {
+                        jfrSettings = value.substring(13).trim();
+                    } else if (value.startsWith("jfr.maxage=")) {
+                        jfrMaxAge = Long.parseLong(value.substring(11).trim());
+                    } else if (value.startsWith("journal=")) {
+                        journalDir = value.substring(8).trim();
+                        modelOptions.add(value);
+                    } else if (value.startsWith("journal.segment=")) {
+                        journalSegment = Long.parseLong(value.substring(16).trim());
+                        modelOptions.add(value);
+                    } else if (value.contains("=")) {
+                        modelOptions.add(value);
+                    }
+                } catch (NumberFormatException e) {
+                    logger.severe("Ошибка парсинга аргумента: " + e.getMessage());
+                }
+            }
+        }
+        logger.info("Темп воспроизведения событий: " + replayDelay + " мс");
+        if (jfrFile != null) {
+            try {
+                flightRecording = new FlightRecording(Paths.get(jfrFile), jfrSettings, Duration.ofMinutes(jfrMaxAge));
+                logger.info("Запись JFR ведется в файл " + jfrFile);
+            } catch (IOException | ParseException | IllegalStateException e) {
+                logger.severe("Не удалось запустить запись JFR: " + e.getMessage());
+            }
+        }
+        notificationHub = new NotificationHub(this, notifyQueue, notifyBurst);
+
         // Регистрация сервиса в DF (Directory Facilitator)
         DFAgentDescription dfd = new DFAgentDescription();
         dfd.setName(getAID());
@@ -50,42 +168,206 @@ public class ServerAgent extends Agent {
         // Поведение для обработки подключений клиентов
         addBehaviour(new ClientConnectionBehaviour());
         addBehaviour(new ModelAgentMessageBehaviour());
-
-        // Поведение для проверки статуса клиентов
-        addBehaviour(new TickerBehaviour(this, 5000) {
+        addBehaviour(new TickerBehaviour(this, notifyFlush) {
             @Override
             protected void onTick() {
-                checkClientsStatus();
+                // Время рассылки учитывается только для тактов, в которые что-то отправлено
+                long start = System.nanoTime();
+                if (notificationHub.flush() > 0) {
+                    Metrics.time("server.notify_fanout", start);
+                }
+                for (AID client : notificationHub.takeOverflowed()) {
+                    logger.warning("Клиент не успевает получать результаты и будет отключен: " + client.getLocalName());
+                    removeClient(client);
+                }
             }
         });
+        if (replayDelay > 0) {
+            addBehaviour(new EventReplayBehaviour(this, replayDelay));
+        }
+
+        // Поведения для проверки статуса клиентов
+        addBehaviour(new HeartbeatBehaviour(this, heartbeatInterval));
+        addBehaviour(new PongBehaviour());
+        addBehaviour(new StatsBehaviour(this, () -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("clients", connectedClients.size());
+            stats.put("runningJobs", runningJobs());
+            stats.put("queuedJobs", jobQueue.size());
+            stats.put("retainedModels", retainedJobs.size());
+            stats.put("replayQueue", replayQueueDepth());
+            stats.put("notificationQueue", notificationHub.getTotalQueueDepth());
+            stats.put("notificationsDropped", notificationHub.getTotalDropped());
+            stats.put("models", new ArrayList<>(jobsByModel.keySet()));
+            return stats;
+        }));
+
+        // Показатели сервера читаются из реестра метрик при запросе
+        Metrics.gauge("server.clients", connectedClients::size);
+        Metrics.gauge("server.jobs.running", this::runningJobs);
+        Metrics.gauge("server.jobs.queued", jobQueue::size);
+        Metrics.gauge("server.notify.queue", notificationHub::getTotalQueueDepth);
+        Metrics.gauge("server.notify.dropped", notificationHub::getTotalDropped);
+        Metrics.registerMBean();
     }
     private class ModelAgentMessageBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            MessageTemplate template = MessageTemplate.MatchPerformative(ACLMessage.INFORM);
+            MessageTemplate template = MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                    MessageTemplate.not(MessageTemplate.MatchConversationId(HEARTBEAT_CONVERSATION))
+            );
             ACLMessage msg = receive(template);
             if (msg != null) {
-                String content = msg.getContent();
-                if (content.startsWith("DISTRIBUTION_RESULTS:")) {
-                    String results = content.substring(21);
-                    notifyClients("Распределение товаров завершено. Результаты: " + results);
-                } else if (content.startsWith("UNASSIGNED_GOODS:")) {
-                    String unassignedGoods = content.substring(17);
-                    notifyClients("Некоторые товары не удалось распределить: " + unassignedGoods);
-                } else if (content.startsWith("NOTIFICATION:")) {
-                    // Пересылка уведомлений клиентам
-                    String notification = content.substring(13);
-                    notifyClients(notification);
+                MessageEvent event = MessageEvent.begin(myAgent, "ModelAgentMessageBehaviour", msg);
+                try {
+                    String content = msg.getContent();
+                    Metrics.counter("server.in." + MessageEvent.prefix(content)).increment();
+                    if (content.startsWith("PROGRESS:")) {
+                        // Подтверждение нужно даже для отмененного задания, иначе отправитель остановится
+                        relayProgress(msg, jobsByModel.get(msg.getSender().getLocalName()));
+                        return;
+                    }
+                    DistributionJob job = jobsByModel.get(msg.getSender().getLocalName());
+                    if (job == null || (job.isFinished() && !retainedJobs.contains(job))) {
+                        // Сообщения отмененных заданий и посторонних агентов не пересылаются
+                        return;
+                    }
+                    // Результаты получает только клиент, запустивший задание
+                    AID owner = job.getOwner();
+                    String prefix = "[" + job.getId() + "] ";
+                    if (content.startsWith("EVENT_LOG:")) {
+                        replayEvents(content.substring(10), job);
+                    } else if (content.startsWith("DISTRIBUTION_RESULTS:")) {
+                        String results = content.substring(21);
+                        notifyClients(NotificationHub.Topic.RESULTS, owner, prefix + "Распределение товаров завершено. Результаты: " + results);
+                    } else if (content.startsWith("ASSIGNED:")) {
+                        notifyClients(NotificationHub.Topic.RESULTS, owner, prefix + "Размещение товаров: " + content.substring(9));
+                    } else if (content.startsWith("PLAN_UPDATE:")) {
+                        notifyClients(NotificationHub.Topic.RESULTS, owner, prefix + "План изменен. Новый груз транспорта: " + content.substring(12));
+                    } else if (content.startsWith("UNASSIGNED_GOODS:")) {
+                        String unassignedGoods = content.substring(17);
+                        notifyClients(NotificationHub.Topic.RESULTS, owner, prefix + "Некоторые товары не удалось распределить: " + unassignedGoods);
+                    } else if (content.startsWith("NOTIFICATION:")) {
+                        // Пересылка уведомлений клиенту
+                        String notification = content.substring(13);
+                        notifyClients(NotificationHub.Topic.STATUS, owner, prefix + notification.trim());
+                    } else if (content.equals("COMPLETED") && !job.isFinished()) {
+                        finishJob(job, DistributionJob.State.COMPLETED);
+                    } else if (content.startsWith("FAILED:")) {
+                        notifyClients(NotificationHub.Topic.STATUS, owner, prefix + "Задание не выполнено: " + content.substring(7).trim());
+                        finishJob(job, DistributionJob.State.FAILED);
+                    }
+                } finally {
+                    event.commit();
                 }
             } else {
                 block();
             }
         }
     }
+
+    /**
+     * Поведение для воспроизведения журнала событий клиентам в демонстрационном темпе.
+     * Расчет выполняется без задержек, а клиенты получают по одному событию каждого
+     * задания за такт, поэтому воспроизведение одного задания не задерживает другие.
+     * Результаты и состояние заданий отправляются сразу, не дожидаясь воспроизведения.
+     */
+    private class EventReplayBehaviour extends TickerBehaviour {
+        public EventReplayBehaviour(Agent a, long period) {
+            super(a, period);
+        }
+
+        @Override
+        protected void onTick() {
+            Iterator<Deque<PendingNotification>> queues = replayQueues.values().iterator();
+            while (queues.hasNext()) {
+                Deque<PendingNotification> queue = queues.next();
+                PendingNotification pending = queue.poll();
+                if (pending != null && !notificationHub.isSubscribed(pending.recipient, pending.topic)) {
+                    // Клиент отписался от событий или отключился: остаток журнала не нужен
+                    queue.clear();
+                } else if (pending != null) {
+                    notifyClients(pending.topic, pending.recipient, pending.message);
+                }
+                if (queue.isEmpty()) {
+                    queues.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Подтверждение сводки о ходе распределения и пересылка ее клиентам.
+     * Неподтвержденные сводки сдерживают отправителя, поэтому подтверждение
+     * отправляется сразу после разбора.
+     */
+    private void relayProgress(ACLMessage msg, DistributionJob job) {
+        ACLMessage ack = msg.createReply();
+        ack.setPerformative(ACLMessage.CONFIRM);
+        send(ack);
+        if (job == null || job.isFinished()) {
+            return;
+        }
+        try {
+            ProgressSummary summary = GSON.fromJson(msg.getContent().substring(9), ProgressSummary.class);
+            notifyClients(NotificationHub.Topic.PROGRESS, job.getOwner(), "[" + job.getId() + "] " + summary);
+        } catch (JsonSyntaxException e) {
+            logger.severe("Ошибка разбора сводки: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Постановка событий журнала распределения в очередь воспроизведения
+     */
+    private void replayEvents(String json, DistributionJob job) {
+        List<DistributionEvent> events;
+        try {
+            events = GSON.fromJson(json, EVENTS_TYPE);
+        } catch (JsonSyntaxException e) {
+            logger.severe("Ошибка разбора журнала событий: " + e.getMessage());
+            return;
+        }
+        logger.info("Получен журнал событий распределения: " + events.size() + " событий");
+        if (!notificationHub.isSubscribed(job.getOwner(), NotificationHub.Topic.EVENTS)) {
+            // Клиент не подписан на события, воспроизводить некому
+            return;
+        }
+        for (DistributionEvent event : events) {
+            if (replayDelay > 0) {
+                replayQueues.computeIfAbsent(job.getId(), id -> new ArrayDeque<>()).add(new PendingNotification(
+                        NotificationHub.Topic.EVENTS, job.getOwner(), "[" + job.getId() + "] " + event.getMessage()));
+            } else {
+                notifyClients(NotificationHub.Topic.EVENTS, job.getOwner(), "[" + job.getId() + "] " + event.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Количество событий, ожидающих воспроизведения по всем заданиям
+     */
+    private int replayQueueDepth() {
+        int depth = 0;
+        for (Deque<PendingNotification> queue : replayQueues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
     @Override
     protected void takeDown() {
-        // Остановка всех агентов
-        stopDistributionProcess();
+        // Отмена всех заданий и остановка агентов-моделей
+        for (DistributionJob job : new ArrayList<>(jobs.values())) {
+            if (!job.isFinished()) {
+                finishJob(job, DistributionJob.State.CANCELLED);
+            }
+        }
+        while (!retainedJobs.isEmpty()) {
+            releaseModel(retainedJobs.peekFirst());
+        }
+        if (flightRecording != null) {
+            flightRecording.stop();
+            logger.info("Запись JFR сохранена в файл " + jfrFile);
+        }
 
         // Отмена регистрации сервиса
         try {
@@ -104,45 +386,52 @@ public class ServerAgent extends Agent {
     private class ClientConnectionBehaviour extends CyclicBehaviour {
         @Override
         public void action() {
-            ACLMessage msg = receive(MessageTemplate.MatchPerformative(ACLMessage.REQUEST));
+            ACLMessage msg = receive(MessageTemplate.and(
+                    MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                    MessageTemplate.not(MessageTemplate.MatchConversationId(StatsBehaviour.CONVERSATION_ID))));
 
             if (msg != null) {
-                AID sender = msg.getSender();
-                String content = msg.getContent();
-
-                if (content.equals("CONNECT")) {
-                    // Запрос на подключение
-                    if (!connectedClients.contains(sender)) {
-                        connectedClients.add(sender);
-                        logger.info("Клиент подключен: " + sender.getLocalName());
-
+                MessageEvent event = MessageEvent.begin(myAgent, "ClientConnectionBehaviour", msg);
+                try {
+                    AID sender = msg.getSender();
+                    String content = msg.getContent();
+                    Metrics.counter("server.in." + MessageEvent.prefix(content)).increment();
+                    renewLease(sender);
+
+                    if (content.equals("CONNECT")) {
+                        // Запрос на подключение
+                        if (!connectedClients.contains(sender)) {
+                            connectedClients.add(sender);
+                            leases.put(sender, System.currentTimeMillis());
+                            notificationHub.addClient(sender);
+                            logger.info("Клиент подключен: " + sender.getLocalName());
+
+                            ACLMessage reply = msg.createReply();
+                            reply.setPerformative(ACLMessage.INFORM);
+                            reply.setContent("CONNECTED");
+                            send(reply);
+
+                        }
+                    } else if (content.equals("DISCONNECT")) {
+                        // Запрос на отключение
                         ACLMessage reply = msg.createReply();
                         reply.setPerformative(ACLMessage.INFORM);
-                        reply.setContent("CONNECTED");
+                        reply.setContent("DISCONNECTED");
                         send(reply);
 
+                        removeClient(sender);
+                        logger.info("Клиент отключен: " + sender.getLocalName());
+                    } else if (content.startsWith("COMMAND:")) {
+                        // Обработка команд от клиента
+                        String command = content.substring(8).trim();
+                        processClientCommand(command, sender);
+                    } else if (content.startsWith("DISTRIBUTION_RESULTS:")) {
+                        // Обработка результатов распределения
+                        String results = content.substring(21);
+                        notifyClients(NotificationHub.Topic.RESULTS, null, "Распределение товаров завершено. Результаты: " + results);
                     }
-                } else if (content.equals("DISCONNECT")) {
-                    // Запрос на отключение
-                    connectedClients.remove(sender);
-                    logger.info("Клиент отключен: " + sender.getLocalName());
-
-                    ACLMessage reply = msg.createReply();
-                    reply.setPerformative(ACLMessage.INFORM);
-                    reply.setContent("DISCONNECTED");
-                    send(reply);
-
-                    if (connectedClients.isEmpty() && processRunning) {
-                        stopDistributionProcess();
-                    }
-                } else if (content.startsWith("COMMAND:")) {
-                    // Обработка команд от клиента
-                    String command = content.substring(8).trim();
-                    processClientCommand(command, sender);
-                } else if (content.startsWith("DISTRIBUTION_RESULTS:")) {
-                    // Обработка результатов распределения
-                    String results = content.substring(21);
-                    notifyClients("Распределение товаров завершено. Результаты: " + results);
+                } finally {
+                    event.commit();
                 }
             } else {
                 block();
@@ -151,115 +440,411 @@ public class ServerAgent extends Agent {
     }
 
     /**
-     * Проверка статуса подключения клиентов через пинг
+     * Отключение клиента: его незавершенные задания отменяются, так как результаты
+     * предназначены только ему
      */
-    private void checkClientsStatus() {
-        List<AID> disconnectedClients = new ArrayList<>();
-
-        // Проверка каждого клиента на доступность
-        for (AID client : connectedClients) {
-            ACLMessage ping = new ACLMessage(ACLMessage.QUERY_IF);
-            ping.addReceiver(client);
-            ping.setContent("PING");
-            ping.setReplyWith("ping" + System.currentTimeMillis());
-
-            MessageTemplate mt = MessageTemplate.and(
-                    MessageTemplate.MatchPerformative(ACLMessage.INFORM),
-                    MessageTemplate.MatchInReplyTo(ping.getReplyWith())
-            );
+    private void removeClient(AID client) {
+        connectedClients.remove(client);
+        leases.remove(client);
+        notificationHub.removeClient(client);
+        for (DistributionJob job : new ArrayList<>(jobs.values())) {
+            if (job.getOwner().equals(client) && !job.isFinished()) {
+                finishJob(job, DistributionJob.State.CANCELLED);
+            }
+        }
+        for (DistributionJob job : new ArrayList<>(retainedJobs)) {
+            if (job.getOwner().equals(client)) {
+                releaseModel(job);
+            }
+        }
+    }
 
-            send(ping);
+    /**
+     * Продление аренды клиента: любое сообщение от подключенного клиента подтверждает его активность
+     */
+    private void renewLease(AID client) {
+        if (leases.containsKey(client)) {
+            leases.put(client, System.currentTimeMillis());
+        }
+    }
 
-            // Ждем ответа с таймаутом
-            ACLMessage reply = blockingReceive(mt, 2000);
+    /**
+     * Проверка статуса подключения клиентов без ожидания ответов.
+     * На каждом такте клиенты с истекшей арендой отключаются, а остальным
+     * отправляется один общий пинг; ответы обрабатывает PongBehaviour.
+     */
+    private class HeartbeatBehaviour extends TickerBehaviour {
+        public HeartbeatBehaviour(Agent a, long period) {
+            super(a, period);
+        }
 
-            if (reply == null) {
-                // Нет ответа - клиент считается отключенным
-                disconnectedClients.add(client);
+        @Override
+        protected void onTick() {
+            long now = System.currentTimeMillis();
+            List<AID> expiredClients = new ArrayList<>();
+            for (AID client : connectedClients) {
+                Long lastSeen = leases.get(client);
+                if (lastSeen == null || now - lastSeen > leaseDuration) {
+                    expiredClients.add(client);
+                }
+            }
+            for (AID client : expiredClients) {
+                removeClient(client);
                 logger.warning("Клиент не отвечает и будет отключен: " + client.getLocalName());
             }
+
+            // Пинги без ответа дольше срока аренды больше не нужны
+            pendingPings.values().removeIf(sentAt -> now - sentAt > leaseDuration);
+            if (connectedClients.isEmpty()) {
+                return;
+            }
+            ACLMessage ping = new ACLMessage(ACLMessage.QUERY_IF);
+            for (AID client : connectedClients) {
+                ping.addReceiver(client);
+            }
+            ping.setContent("PING");
+            ping.setConversationId(HEARTBEAT_CONVERSATION);
+            ping.setReplyWith("ping-" + (++pingCounter));
+            pendingPings.put(ping.getReplyWith(), now);
+            send(ping);
         }
+    }
+
+    /**
+     * Обработка ответов на пинги: продление аренды ответившего клиента
+     */
+    private class PongBehaviour extends CyclicBehaviour {
+        private final MessageTemplate template = MessageTemplate.and(
+                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                MessageTemplate.MatchConversationId(HEARTBEAT_CONVERSATION)
+        );
 
-        // Удаление отключенных клиентов
-        for (AID client : disconnectedClients) {
-            connectedClients.remove(client);
+        @Override
+        public void action() {
+            ACLMessage msg = receive(template);
+            if (msg == null) {
+                block();
+                return;
+            }
+            MessageEvent event = MessageEvent.begin(myAgent, "PongBehaviour", msg);
+            try {
+                Long sentAt = pendingPings.get(msg.getInReplyTo());
+                if (sentAt == null) {
+                    // Ответ на устаревший пинг не продлевает аренду
+                    return;
+                }
+                renewLease(msg.getSender());
+                logger.fine("Клиент " + msg.getSender().getLocalName() + " ответил на пинг за " +
+                        (System.currentTimeMillis() - sentAt) + " мс");
+            } finally {
+                event.commit();
+            }
         }
+    }
 
+    /**
+     * Постановка задания в очередь
+     *
+     * @param owner клиент, которому будут отправлены результаты
+     * @return новое задание
+     */
+    private DistributionJob submitJob(AID owner) {
+        DistributionJob job = new DistributionJob("job-" + (++jobCounter), owner);
+        jobs.put(job.getId(), job);
+        jobQueue.add(job);
+        logger.info("Задание " + job.getId() + " от клиента " + owner.getLocalName() + " поставлено в очередь");
+        dispatchJobs();
+        return job;
     }
 
     /**
-     * Запуск процесса распределения товаров
+     * Запуск заданий из очереди, пока есть свободные исполнители
      */
-    private void startDistributionProcess() {
-        if (processRunning) {
-            logger.info("Процесс распределения уже запущен");
-            return;
+    private void dispatchJobs() {
+        while (!jobQueue.isEmpty() && runningJobs() < workers) {
+            launchJob(jobQueue.poll());
         }
+    }
 
-        if (connectedClients.isEmpty()) {
-            logger.info("Невозможно запустить процесс - нет подключенных клиентов");
-            return;
+    private int runningJobs() {
+        int running = 0;
+        for (DistributionJob job : jobs.values()) {
+            if (job.getState() == DistributionJob.State.RUNNING) {
+                running++;
+            }
         }
+        return running;
+    }
 
-        logger.info("Запуск процесса распределения товаров");
-
-        // Создание агентов для процесса распределения
+    /**
+     * Создание агента-модели для задания и отправка ему команды запуска.
+     * Имя агента уникально для задания, транспортные агенты получают его как префикс.
+     */
+    private void launchJob(DistributionJob job) {
+        String modelName = "ModelAgent-" + job.getId();
         try {
             ContainerController container = getContainerController();
 
             // Параметр - количество транспортных средств
-            Object[] modelArgs = new Object[] { 3 }; // 3 транспортных средства
+            Object[] modelArgs = new Object[modelOptions.size() + 1];
+            modelArgs[0] = 3; // 3 транспортных средства
+            for (int i = 0; i < modelOptions.size(); i++) {
+                modelArgs[i + 1] = modelOptions.get(i);
+            }
 
-            // Создание основного агента-модели
-            AgentController modelAgent = container.createNewAgent(
-                    "ModelAgent",
-                    "agents.ModelAgent",
-                    modelArgs
-            );
+            AgentController modelAgent = container.createNewAgent(modelName, "agents.ModelAgent", modelArgs);
             modelAgent.start();
-            runningAgents.put("ModelAgent", modelAgent);
+            job.start(modelName, modelAgent);
+            jobsByModel.put(modelName, job);
+
             ACLMessage startMsg = new ACLMessage(ACLMessage.INFORM);
-            startMsg.addReceiver(new AID("ModelAgent", AID.ISLOCALNAME));
+            startMsg.addReceiver(new AID(modelName, AID.ISLOCALNAME));
             startMsg.setContent("START_DISTRIBUTION");
             send(startMsg);
-            logger.info("Команда START_DISTRIBUTION отправлена ModelAgent");
-            processRunning = true;
+            logger.info("Команда START_DISTRIBUTION отправлена " + modelName);
+
+            notifyClients(NotificationHub.Topic.STATUS, job.getOwner(), "[" + job.getId() + "] Процесс распределения товаров запущен");
+        } catch (Exception e) {
+            logger.severe("Ошибка при запуске задания " + job.getId() + ": " + e.getMessage());
+            notifyClients(NotificationHub.Topic.STATUS, job.getOwner(), "[" + job.getId() + "] Ошибка запуска: " + e.getMessage());
+            finishJob(job, DistributionJob.State.FAILED);
+        }
+    }
 
-            // Уведомление клиентов о запуске процесса
-            notifyClients("Процесс распределения товаров запущен");
+    /**
+     * Завершение задания: остановка агента-модели (вместе с его транспортом)
+     * и запуск следующего задания из очереди. Агент-модель успешно завершенного
+     * задания сохраняется для изменений плана; при превышении лимита останавливается
+     * агент самого старого сохраненного задания.
+     */
+    private void finishJob(DistributionJob job, DistributionJob.State state) {
+        boolean wasRunning = job.getState() == DistributionJob.State.RUNNING;
+        jobQueue.remove(job);
+        job.finish(state);
+        if (wasRunning && state == DistributionJob.State.COMPLETED && retain > 0) {
+            retainedJobs.addLast(job);
+            if (retainedJobs.size() > retain) {
+                releaseModel(retainedJobs.peekFirst());
+            }
+        } else if (wasRunning) {
+            stopModel(job);
+        }
+        if (state == DistributionJob.State.CANCELLED) {
+            replayQueues.remove(job.getId());
+            notifyClients(NotificationHub.Topic.STATUS, job.getOwner(), "[" + job.getId() + "] Задание отменено");
+        } else if (state == DistributionJob.State.COMPLETED) {
+            notifyClients(NotificationHub.Topic.STATUS, job.getOwner(), "[" + job.getId() + "] Задание выполнено");
+        }
+        logger.info("Задание " + job.getId() + " завершено: " + state);
 
+        // Из истории удаляются самые старые завершенные задания
+        int finished = 0;
+        for (DistributionJob other : jobs.values()) {
+            if (other.isFinished()) {
+                finished++;
+            }
+        }
+        Iterator<DistributionJob> iterator = jobs.values().iterator();
+        while (finished > FINISHED_JOBS_KEPT && iterator.hasNext()) {
+            DistributionJob next = iterator.next();
+            if (next.isFinished()) {
+                iterator.remove();
+                if (retainedJobs.contains(next)) {
+                    releaseModel(next);
+                }
+                finished--;
+            }
+        }
+        dispatchJobs();
+    }
+
+    private void stopModel(DistributionJob job) {
+        try {
+            job.getModelAgent().kill();
+            logger.info("Агент " + job.getModelName() + " остановлен");
         } catch (Exception e) {
-            logger.severe("Ошибка при запуске процесса: " + e.getMessage());
-            e.printStackTrace();
+            logger.warning("Ошибка при остановке агента " + job.getModelName() + ": " + e.getMessage());
         }
+        jobsByModel.remove(job.getModelName());
     }
 
     /**
-     * Остановка процесса распределения товаров
+     * Остановка сохраненного агента-модели завершенного задания: план больше нельзя изменить
      */
-    private void stopDistributionProcess() {
-        if (!processRunning) {
-            logger.info("Процесс распределения не запущен");
-            return;
+    private void releaseModel(DistributionJob job) {
+        if (retainedJobs.remove(job)) {
+            stopModel(job);
         }
+    }
 
-        logger.info("Остановка процесса распределения товаров");
+    /**
+     * Передача товара заданию в потоковом режиме (только владельцем).
+     * Формат: stream <id> <id товара> <вес> [несовместимости через запятую] или stream <id> end
+     */
+    private String sendStream(String[] parts, AID sender) {
+        if (parts.length < 3) {
+            return "Формат: stream <id> <id товара> <вес> [несовместимости] | stream <id> end";
+        }
+        DistributionJob job = jobs.get(parts[1]);
+        if (job == null) {
+            return "Задание " + parts[1] + " не найдено";
+        }
+        if (!job.getOwner().equals(sender)) {
+            return "Задание " + parts[1] + " принадлежит другому клиенту";
+        }
+        if (job.getState() != DistributionJob.State.RUNNING) {
+            return "Задание " + parts[1] + " не выполняется";
+        }
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(new AID(job.getModelName(), AID.ISLOCALNAME));
+        msg.setConversationId(ModelAgent.STREAM_CONVERSATION);
+        if (parts[2].equalsIgnoreCase("end")) {
+            msg.setContent("END_STREAM");
+            send(msg);
+            return "Поток товаров задания " + job.getId() + " завершен";
+        }
+        if (parts.length < 4) {
+            return "Формат: stream <id> <id товара> <вес> [несовместимости]";
+        }
+        try {
+            List<String> incompatibilities = parts.length > 4
+                    ? new ArrayList<>(Arrays.asList(parts[4].split(","))) : new ArrayList<>();
+            msg.setContent("GOOD:" + GSON.toJson(new Good(parts[2], Integer.parseInt(parts[3]), incompatibilities)));
+        } catch (NumberFormatException e) {
+            return "Некорректное число: " + e.getMessage();
+        }
+        send(msg);
+        return "Товар " + parts[2] + " передан заданию " + job.getId();
+    }
 
-        // Завершение работы всех агентов
-        for (Map.Entry<String, AgentController> entry : runningAgents.entrySet()) {
-            try {
-                entry.getValue().kill();
-                logger.info("Агент " + entry.getKey() + " остановлен");
-            } catch (Exception e) {
-                logger.warning("Ошибка при остановке агента " + entry.getKey() + ": " + e.getMessage());
+    /**
+     * Изменение плана задания клиентом (только владельцем).
+     * Формат: delta <id> add-good <id товара> <вес> [несовместимости через запятую],
+     * delta <id> remove-good <id товара>, delta <id> add-vehicle <грузоподъемность>,
+     * delta <id> remove-vehicle <имя транспорта>
+     */
+    private String sendDelta(String[] parts, AID sender) {
+        if (parts.length < 4) {
+            return "Формат: delta <id> add-good|remove-good|add-vehicle|remove-vehicle <параметры>";
+        }
+        DistributionJob job = jobs.get(parts[1]);
+        if (job == null) {
+            return "Задание " + parts[1] + " не найдено";
+        }
+        if (!job.getOwner().equals(sender)) {
+            return "Задание " + parts[1] + " принадлежит другому клиенту";
+        }
+        if (!jobsByModel.containsKey(job.getModelName())
+                || (job.isFinished() && !retainedJobs.contains(job))) {
+            return "План задания " + parts[1] + " недоступен для изменения";
+        }
+        PlanDelta delta = new PlanDelta();
+        try {
+            switch (parts[2].toLowerCase(Locale.ROOT)) {
+                case "add-good":
+                    if (parts.length < 5) {
+                        return "Формат: delta <id> add-good <id товара> <вес> [несовместимости]";
+                    }
+                    List<String> incompatibilities = parts.length > 5
+                            ? new ArrayList<>(Arrays.asList(parts[5].split(","))) : new ArrayList<>();
+                    delta.addGood(new Good(parts[3], Integer.parseInt(parts[4]), incompatibilities));
+                    break;
+                case "remove-good":
+                    delta.removeGood(parts[3]);
+                    break;
+                case "add-vehicle":
+                    delta.addVehicle(Integer.parseInt(parts[3]));
+                    break;
+                case "remove-vehicle":
+                    delta.removeVehicle(parts[3]);
+                    break;
+                default:
+                    return "Неизвестное изменение: " + parts[2];
             }
+        } catch (NumberFormatException e) {
+            return "Некорректное число: " + e.getMessage();
         }
+        ACLMessage msg = new ACLMessage(ACLMessage.INFORM);
+        msg.addReceiver(new AID(job.getModelName(), AID.ISLOCALNAME));
+        msg.setContent("DELTA:" + GSON.toJson(delta));
+        send(msg);
+        return "Изменение отправлено заданию " + job.getId();
+    }
 
-        runningAgents.clear();
-        processRunning = false;
+    /**
+     * Отмена задания клиентом (только владельцем)
+     */
+    private String cancelJob(String jobId, AID sender) {
+        DistributionJob job = jobs.get(jobId);
+        if (job == null) {
+            return "Задание " + jobId + " не найдено";
+        }
+        if (!job.getOwner().equals(sender)) {
+            return "Задание " + jobId + " принадлежит другому клиенту";
+        }
+        if (job.isFinished()) {
+            return "Задание " + jobId + " уже завершено: " + job.getState();
+        }
+        finishJob(job, DistributionJob.State.CANCELLED);
+        return "Задание " + jobId + " отменено";
+    }
 
-        // Уведомление клиентов об остановке процесса
-        notifyClients("Процесс распределения товаров остановлен");
+    /**
+     * Отмена всех незавершенных заданий клиента
+     */
+    private int cancelJobsOf(AID sender) {
+        int cancelled = 0;
+        for (DistributionJob job : new ArrayList<>(jobs.values())) {
+            if (job.getOwner().equals(sender) && !job.isFinished()) {
+                finishJob(job, DistributionJob.State.CANCELLED);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Список последних запусков из журнала
+     *
+     * @param limit количество запусков (по умолчанию 10)
+     */
+    private String listRuns(String limit) {
+        int count;
+        try {
+            count = limit.isEmpty() ? 10 : Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            return "Использование: runs [N]";
+        }
+        List<RunJournal.Entry> entries;
+        try {
+            entries = RunJournal.open(journalDir, journalSegment).list(count);
+        } catch (IOException e) {
+            return "Журнал запусков недоступен: " + e.getMessage();
+        }
+        if (entries.isEmpty()) {
+            return "Журнал запусков пуст";
+        }
+        StringBuilder sb = new StringBuilder("Запуски:\n");
+        for (RunJournal.Entry entry : entries) {
+            sb.append("- ").append(entry).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Запись запуска из журнала
+     */
+    private String fetchRun(String id) {
+        long run = RunJournal.parseRunId(id);
+        if (run < 0) {
+            return "Использование: run <run-N>";
+        }
+        try {
+            String record = RunJournal.open(journalDir, journalSegment).read(run);
+            return record != null ? record : "Запуск run-" + run + " не найден (или еще записывается)";
+        } catch (IOException e) {
+            return "Ошибка чтения журнала запусков: " + e.getMessage();
+        }
     }
 
     /**
@@ -269,44 +854,97 @@ public class ServerAgent extends Agent {
         logger.info("Получена команда от клиента " + sender.getLocalName() + ": " + command);
 
         String response = "Команда получена";
+        String lower = command.toLowerCase(Locale.ROOT);
 
         // Обработка основных команд
         if (command.equalsIgnoreCase("status")) {
-            response = "Статус сервера: " +
-                    (processRunning ? "Процесс запущен" : "Процесс остановлен") +
+            response = "Статус сервера: выполняется заданий " + runningJobs() + " из " + workers +
+                    ", в очереди " + jobQueue.size() +
                     ", Подключено клиентов: " + connectedClients.size();
+        } else if (lower.startsWith("status ")) {
+            DistributionJob job = jobs.get(command.substring(7).trim());
+            response = job != null ? job.describe() : "Задание " + command.substring(7).trim() + " не найдено";
         } else if (command.equalsIgnoreCase("start")) {
-            if (!processRunning) {
-                startDistributionProcess();
-                response = "Процесс распределения товаров запущен";
+            DistributionJob job = submitJob(sender);
+            response = job.getState() == DistributionJob.State.QUEUED
+                    ? "Задание " + job.getId() + " поставлено в очередь (позиция " + jobQueue.size() + ")"
+                    : "Задание " + job.getId() + " запущено";
+        } else if (lower.startsWith("cancel ")) {
+            response = cancelJob(command.substring(7).trim(), sender);
+        } else if (lower.startsWith("delta ")) {
+            response = sendDelta(command.trim().split("\\s+"), sender);
+        } else if (lower.startsWith("stream ")) {
+            response = sendStream(command.trim().split("\\s+"), sender);
+        } else if (lower.startsWith("close ")) {
+            DistributionJob job = jobs.get(command.substring(6).trim());
+            if (job == null || !job.getOwner().equals(sender) || !retainedJobs.contains(job)) {
+                response = "Сохраненный план задания " + command.substring(6).trim() + " не найден";
             } else {
-                response = "Процесс уже запущен";
+                releaseModel(job);
+                response = "План задания " + job.getId() + " закрыт";
             }
         } else if (command.equalsIgnoreCase("stop")) {
-            if (processRunning) {
-                stopDistributionProcess();
-                response = "Процесс распределения товаров остановлен";
+            response = "Отменено заданий: " + cancelJobsOf(sender);
+        } else if (command.equalsIgnoreCase("restart")) {
+            cancelJobsOf(sender);
+            response = "Процесс перезапущен, новое задание " + submitJob(sender).getId();
+        } else if (command.equalsIgnoreCase("jobs")) {
+            StringBuilder sb = new StringBuilder("Задания:\n");
+            for (DistributionJob job : jobs.values()) {
+                sb.append("- ").append(job.describe()).append("\n");
+            }
+            response = sb.toString();
+        } else if (command.equalsIgnoreCase("metrics") || lower.startsWith("metrics ")) {
+            String metrics = Metrics.format(command.substring(7).trim());
+            response = metrics.isEmpty() ? "Метрик нет" : "Метрики (время в мкс):\n" + metrics;
+        } else if (command.equalsIgnoreCase("runs") || lower.startsWith("runs ")) {
+            response = listRuns(command.substring(4).trim());
+        } else if (lower.startsWith("run ")) {
+            response = fetchRun(command.substring(4).trim());
+        } else if (command.equalsIgnoreCase("jfr")) {
+            if (flightRecording == null) {
+                response = "Запись JFR не ведется (параметр сервера jfr=<файл>)";
             } else {
-                response = "Процесс не запущен";
+                try {
+                    response = "Снимок записи JFR сохранен: " + flightRecording.dump();
+                } catch (IOException e) {
+                    response = "Ошибка сохранения записи JFR: " + e.getMessage();
+                }
             }
-        } else if (command.equalsIgnoreCase("restart")) {
-            stopDistributionProcess();
-            startDistributionProcess();
-            response = "Процесс распределения товаров перезапущен";
         } else if (command.equalsIgnoreCase("help")) {
             response = "Доступные команды:\n" +
                     "status - проверить статус сервера\n" +
-                    "start - запустить процесс распределения\n" +
-                    "stop - остановить процесс распределения\n" +
-                    "restart - перезапустить процесс\n" +
+                    "status <id> - состояние задания\n" +
+                    "start - поставить задание на распределение в очередь\n" +
+                    "cancel <id> - отменить свое задание\n" +
+                    "delta <id> add-good <товар> <вес> [несовместимости] | remove-good <товар> |\n" +
+                    "    add-vehicle <грузоподъемность> | remove-vehicle <транспорт> - изменить готовый план\n" +
+                    "close <id> - закрыть сохраненный план задания\n" +
+                    "stream <id> <товар> <вес> [несовместимости] | stream <id> end - товар для потокового режима\n" +
+                    "stop - отменить все свои задания\n" +
+                    "restart - отменить свои задания и запустить новое\n" +
+                    "jobs - список заданий\n" +
                     "clients - список подключенных клиентов\n" +
+                    "metrics [префикс] - счетчики и задержки этапов (также доступны через JMX)\n" +
+                    "jfr - сохранить снимок непрерывной записи JFR\n" +
+                    "runs [N] - последние запуски из журнала запусков\n" +
+                    "run <run-N> - запись запуска из журнала (план, нераспределенные товары, длительности этапов)\n" +
+                    "subscribe <темы> - подписка на темы уведомлений через запятую: status, events, progress, results или all\n" +
                     "help - показать это сообщение";
         } else if (command.equalsIgnoreCase("clients")) {
             StringBuilder sb = new StringBuilder("Подключенные клиенты:\n");
             for (AID client : connectedClients) {
-                sb.append("- ").append(client.getLocalName()).append("\n");
+                sb.append("- ").append(client.getLocalName())
+                        .append(" (в очереди: ").append(notificationHub.getQueueDepth(client))
+                        .append(", отброшено: ").append(notificationHub.getDropped(client)).append(")\n");
             }
             response = sb.toString();
+        } else if (lower.startsWith("subscribe")) {
+            try {
+                response = "Подписка: " + notificationHub.subscribe(sender, command.substring(9).trim());
+            } catch (IllegalArgumentException e) {
+                response = "Ошибка подписки: " + e.getMessage();
+            }
         }
 
         // Отправка ответа клиенту
@@ -314,17 +952,15 @@ public class ServerAgent extends Agent {
         reply.addReceiver(sender);
         reply.setContent("RESULT: " + response);
         send(reply);
+        Metrics.counter("server.out.result").increment();
     }
 
     /**
-     * Уведомление всех подключенных клиентов
+     * Уведомление клиентов, подписанных на тему
+     *
+     * @param recipient единственный получатель или null для всех клиентов
      */
-    private void notifyClients(String message) {
-        for (AID client : connectedClients) {
-            ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
-            notification.addReceiver(client);
-            notification.setContent("NOTIFICATION: " + message);
-            send(notification);
-        }
+    private void notifyClients(NotificationHub.Topic topic, AID recipient, String message) {
+        notificationHub.publish(topic, message, recipient);
     }
-}
\ No newline at end of file
+}
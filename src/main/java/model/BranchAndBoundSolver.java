@@ -0,0 +1,463 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Точный решатель задачи упаковки с конфликтами методом ветвей и границ.
+ * Минимизирует суммарный вес нераспределенных товаров (товары не делятся).
+ *
+ * Нижние границы: по суммарной остаточной грузоподъемности и по кликам графа
+ * несовместимостей (из клики в один транспорт попадает не более одного товара).
+ * Симметрия одинаковых транспортов устраняется: из пустых транспортов с одинаковой
+ * грузоподъемностью перебирается только один. Верхние уровни дерева поиска
+ * распределяются между потоками ForkJoinPool (work stealing).
+ * По истечении бюджета времени возвращается лучшее найденное решение.
+ */
+public class BranchAndBoundSolver {
+    private static final int MAX_FORK_DEPTH = 12;
+    private static final int DEADLINE_CHECK_MASK = 1023;
+
+    private final PackingInstance instance;
+    private final long budgetMillis;
+    private final int parallelism;
+
+    private final int n;
+    private final int vehicleCount;
+    private final int[] order;          // Товары по убыванию веса
+    private final int[] suffixWeight;   // Суммарный вес товаров order[pos..]
+    private final int[] cliqueOf;       // Клика, в которую входит товар
+    private final int[][] cliqueTail;   // Суммы весов хвостов клик (члены по убыванию веса)
+    private final int[] largeCliques;   // Клики из двух и более товаров
+    private final int[] capacityClass;  // Класс одинаковых транспортов
+    private int[][] sortedNeighborsCache;
+
+    private final LongAdder nodes = new LongAdder();
+    private volatile int bestValue;
+    private volatile int[] bestAssignment;
+    private volatile boolean stopped;
+    private volatile boolean timedOut;
+    private int rootBound;
+    private long deadline;
+
+    /**
+     * Результат решения
+     */
+    public static class Result {
+        private final int[] assignment;
+        private final int unassignedWeight;
+        private final boolean optimal;
+        private final long nodes;
+
+        Result(int[] assignment, int unassignedWeight, boolean optimal, long nodes) {
+            this.assignment = assignment;
+            this.unassignedWeight = unassignedWeight;
+            this.optimal = optimal;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Номер транспорта для каждого товара экземпляра, -1 если товар не распределен
+         */
+        public int[] getAssignment() { return assignment; }
+        public int getUnassignedWeight() { return unassignedWeight; }
+        public boolean isOptimal() { return optimal; }
+        public long getNodes() { return nodes; }
+    }
+
+    /**
+     * @param instance задача упаковки
+     * @param budgetMillis ограничение по времени в миллисекундах
+     * @param parallelism количество потоков
+     */
+    public BranchAndBoundSolver(PackingInstance instance, long budgetMillis, int parallelism) {
+        this.instance = instance;
+        this.budgetMillis = budgetMillis;
+        this.parallelism = Math.max(1, parallelism);
+        this.n = instance.size();
+        this.vehicleCount = instance.vehicleCount();
+
+        this.order = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> instance.weight(i)).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.suffixWeight = new int[n + 1];
+        for (int pos = n - 1; pos >= 0; pos--) {
+            suffixWeight[pos] = suffixWeight[pos + 1] + instance.weight(order[pos]);
+        }
+
+        this.cliqueOf = new int[n];
+        List<int[]> cliques = buildCliqueCover();
+        this.cliqueTail = new int[cliques.size()][];
+        List<Integer> large = new ArrayList<>();
+        for (int c = 0; c < cliques.size(); c++) {
+            int[] members = cliques.get(c);
+            int[] tail = new int[members.length + 1];
+            for (int m = members.length - 1; m >= 0; m--) {
+                tail[m] = tail[m + 1] + instance.weight(members[m]);
+                cliqueOf[members[m]] = c;
+            }
+            cliqueTail[c] = tail;
+            if (members.length > 1) {
+                large.add(c);
+            }
+        }
+        this.largeCliques = large.stream().mapToInt(Integer::intValue).toArray();
+
+        this.capacityClass = new int[vehicleCount];
+        for (int v = 0; v < vehicleCount; v++) {
+            capacityClass[v] = v;
+            for (int u = 0; u < v; u++) {
+                if (instance.capacity(u) == instance.capacity(v)) {
+                    capacityClass[v] = capacityClass[u];
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Жадное покрытие графа несовместимостей кликами.
+     * Члены каждой клики упорядочены по убыванию веса.
+     */
+    private List<int[]> buildCliqueCover() {
+        boolean[] covered = new boolean[n];
+        List<int[]> cliques = new ArrayList<>();
+        for (int pos = 0; pos < n; pos++) {
+            int seed = order[pos];
+            if (covered[seed]) {
+                continue;
+            }
+            covered[seed] = true;
+            List<Integer> clique = new ArrayList<>();
+            clique.add(seed);
+            for (int candidate : instance.neighbors(seed)) {
+                if (covered[candidate]) {
+                    continue;
+                }
+                boolean adjacentToAll = true;
+                for (int member : clique) {
+                    if (Arrays.binarySearch(sortedNeighbors(member), candidate) < 0) {
+                        adjacentToAll = false;
+                        break;
+                    }
+                }
+                if (adjacentToAll) {
+                    clique.add(candidate);
+                    covered[candidate] = true;
+                }
+            }
+            clique.sort(Comparator.comparingInt((Integer i) -> instance.weight(i)).reversed());
+            cliques.add(clique.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return cliques;
+    }
+
+    private int[] sortedNeighbors(int item) {
+        if (sortedNeighborsCache == null) {
+            sortedNeighborsCache = new int[n][];
+        }
+        if (sortedNeighborsCache[item] == null) {
+            int[] copy = instance.neighbors(item).clone();
+            Arrays.sort(copy);
+            sortedNeighborsCache[item] = copy;
+        }
+        return sortedNeighborsCache[item];
+    }
+
+    /**
+     * Запуск поиска
+     *
+     * @return лучшее найденное решение
+     */
+    public Result solve() {
+        deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        SearchState root = new SearchState();
+        rootBound = lowerBound(root, 0);
+
+        // Начальное решение: жадная упаковка первым подходящим
+        int[] initial = firstFitDecreasing();
+        offer(initial);
+
+        if (bestValue > rootBound) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new SearchTask(root, 0, 0));
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        boolean optimal = !timedOut || bestValue <= rootBound;
+        return new Result(bestAssignment.clone(), bestValue, optimal, nodes.sum());
+    }
+
+    private int[] firstFitDecreasing() {
+        SearchState state = new SearchState();
+        for (int pos = 0; pos < n; pos++) {
+            int item = order[pos];
+            int target = -1;
+            for (int v = 0; v < vehicleCount; v++) {
+                if (state.canPlace(item, v)) {
+                    target = v;
+                    break;
+                }
+            }
+            if (target >= 0) {
+                state.place(item, target);
+            } else {
+                state.skip(item);
+            }
+        }
+        return state.assignment.clone();
+    }
+
+    private synchronized void offer(int[] assignment) {
+        int value = 0;
+        for (int i = 0; i < n; i++) {
+            if (assignment[i] < 0) {
+                value += instance.weight(i);
+            }
+        }
+        if (bestAssignment == null || value < bestValue) {
+            bestValue = value;
+            bestAssignment = assignment.clone();
+            if (value <= rootBound) {
+                stopped = true; // Достигнута нижняя граница - решение оптимально
+            }
+        }
+    }
+
+    /**
+     * Нижняя граница веса нераспределенных товаров в поддереве
+     */
+    private int lowerBound(SearchState state, int pos) {
+        int capacityBound = Math.max(0, suffixWeight[pos] - state.freeCapacity);
+        int cliqueBound = 0;
+        for (int c : largeCliques) {
+            int remaining = state.cliqueRemaining[c];
+            int forced = remaining - (vehicleCount - state.cliqueHolders[c]);
+            if (forced > 0) {
+                int[] tail = cliqueTail[c];
+                cliqueBound += tail[tail.length - 1 - forced];
+            }
+        }
+        return state.unassignedWeight + Math.max(capacityBound, cliqueBound);
+    }
+
+    /**
+     * Состояние поиска: текущее частичное распределение
+     */
+    private final class SearchState {
+        final int[] assignment;
+        final int[] loads;
+        final int[] counts;          // Количество товаров в транспорте
+        final int[][] blocked;       // [транспорт][товар] - число конфликтующих товаров в транспорте
+        final int[][] cliqueCount;   // [транспорт][клика]
+        final int[] cliqueHolders;   // Количество транспортов с товарами клики
+        final int[] cliqueRemaining; // Количество еще не рассмотренных товаров клики
+        int unassignedWeight;
+        int freeCapacity;
+
+        SearchState() {
+            assignment = new int[n];
+            Arrays.fill(assignment, -1);
+            loads = new int[vehicleCount];
+            counts = new int[vehicleCount];
+            blocked = new int[vehicleCount][n];
+            cliqueCount = new int[vehicleCount][cliqueTail.length];
+            cliqueHolders = new int[cliqueTail.length];
+            cliqueRemaining = new int[cliqueTail.length];
+            for (int c = 0; c < cliqueTail.length; c++) {
+                cliqueRemaining[c] = cliqueTail[c].length - 1;
+            }
+            for (int v = 0; v < vehicleCount; v++) {
+                freeCapacity += instance.capacity(v);
+            }
+        }
+
+        SearchState(SearchState other) {
+            assignment = other.assignment.clone();
+            loads = other.loads.clone();
+            counts = other.counts.clone();
+            blocked = new int[vehicleCount][];
+            cliqueCount = new int[vehicleCount][];
+            for (int v = 0; v < vehicleCount; v++) {
+                blocked[v] = other.blocked[v].clone();
+                cliqueCount[v] = other.cliqueCount[v].clone();
+            }
+            cliqueHolders = other.cliqueHolders.clone();
+            cliqueRemaining = other.cliqueRemaining.clone();
+            unassignedWeight = other.unassignedWeight;
+            freeCapacity = other.freeCapacity;
+        }
+
+        boolean canPlace(int item, int v) {
+            return loads[v] + instance.weight(item) <= instance.capacity(v) && blocked[v][item] == 0;
+        }
+
+        void place(int item, int v) {
+            int weight = instance.weight(item);
+            assignment[item] = v;
+            loads[v] += weight;
+            counts[v]++;
+            freeCapacity -= weight;
+            for (int other : instance.neighbors(item)) {
+                blocked[v][other]++;
+            }
+            int c = cliqueOf[item];
+            if (cliqueCount[v][c]++ == 0) {
+                cliqueHolders[c]++;
+            }
+            cliqueRemaining[c]--;
+        }
+
+        void unplace(int item, int v) {
+            int weight = instance.weight(item);
+            assignment[item] = -1;
+            loads[v] -= weight;
+            counts[v]--;
+            freeCapacity += weight;
+            for (int other : instance.neighbors(item)) {
+                blocked[v][other]--;
+            }
+            int c = cliqueOf[item];
+            if (--cliqueCount[v][c] == 0) {
+                cliqueHolders[c]--;
+            }
+            cliqueRemaining[c]++;
+        }
+
+        void skip(int item) {
+            unassignedWeight += instance.weight(item);
+            cliqueRemaining[cliqueOf[item]]--;
+        }
+
+        void unskip(int item) {
+            unassignedWeight -= instance.weight(item);
+            cliqueRemaining[cliqueOf[item]]++;
+        }
+
+        /**
+         * Транспорт-кандидаты для товара: подходящие по весу и совместимости,
+         * по одному пустому транспорту каждого класса; сначала транспорт с наибольшим остатком,
+         * что выравнивает загрузку и оставляет больше вариантов для конфликтующих товаров
+         */
+        int[] candidates(int item) {
+            int[] result = new int[vehicleCount];
+            int size = 0;
+            boolean[] emptyClassSeen = new boolean[vehicleCount];
+            for (int v = 0; v < vehicleCount; v++) {
+                if (!canPlace(item, v)) {
+                    continue;
+                }
+                if (counts[v] == 0) {
+                    if (emptyClassSeen[capacityClass[v]]) {
+                        continue;
+                    }
+                    emptyClassSeen[capacityClass[v]] = true;
+                }
+                result[size++] = v;
+            }
+            int[] candidates = Arrays.copyOf(result, size);
+            // Сортировка вставкой по убыванию остатка грузоподъемности
+            for (int i = 1; i < candidates.length; i++) {
+                int v = candidates[i];
+                int residual = instance.capacity(v) - loads[v];
+                int j = i - 1;
+                while (j >= 0 && instance.capacity(candidates[j]) - loads[candidates[j]] < residual) {
+                    candidates[j + 1] = candidates[j];
+                    j--;
+                }
+                candidates[j + 1] = v;
+            }
+            return candidates;
+        }
+    }
+
+    /**
+     * Задача поиска в поддереве. Верхние уровни порождают подзадачи для других потоков,
+     * нижние обходятся последовательно с откатом состояния.
+     */
+    private final class SearchTask extends RecursiveAction {
+        private final SearchState state;
+        private final int pos;
+        private final int depth;
+        private long localNodes;
+
+        SearchTask(SearchState state, int pos, int depth) {
+            this.state = state;
+            this.pos = pos;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            search(pos, depth);
+            nodes.add(localNodes & DEADLINE_CHECK_MASK);
+        }
+
+        private boolean shouldStop() {
+            if (stopped) {
+                return true;
+            }
+            if ((++localNodes & DEADLINE_CHECK_MASK) == 0) {
+                nodes.add(DEADLINE_CHECK_MASK + 1);
+                if (System.nanoTime() > deadline) {
+                    timedOut = true;
+                    stopped = true;
+                }
+            }
+            return stopped;
+        }
+
+        private void search(int pos, int depth) {
+            if (shouldStop()) {
+                return;
+            }
+            if (pos == n) {
+                if (state.unassignedWeight < bestValue) {
+                    offer(state.assignment);
+                }
+                return;
+            }
+            if (lowerBound(state, pos) >= bestValue) {
+                return;
+            }
+            int item = order[pos];
+            int[] candidates = state.candidates(item);
+
+            if (depth < MAX_FORK_DEPTH && ForkJoinTask.getSurplusQueuedTaskCount() < 2) {
+                List<SearchTask> subtasks = new ArrayList<>(candidates.length + 1);
+                for (int v : candidates) {
+                    SearchState child = new SearchState(state);
+                    child.place(item, v);
+                    subtasks.add(new SearchTask(child, pos + 1, depth + 1));
+                }
+                SearchState skipped = new SearchState(state);
+                skipped.skip(item);
+                subtasks.add(new SearchTask(skipped, pos + 1, depth + 1));
+                invokeAll(subtasks);
+                return;
+            }
+
+            for (int v : candidates) {
+                state.place(item, v);
+                search(pos + 1, depth + 1);
+                state.unplace(item, v);
+                if (stopped) {
+                    return;
+                }
+            }
+            state.skip(item);
+            search(pos + 1, depth + 1);
+            state.unskip(item);
+        }
+    }
+}
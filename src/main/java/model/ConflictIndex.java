@@ -0,0 +1,125 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс несовместимостей товаров (граф конфликтов).
+ * Базовые идентификаторы товаров (без суффиксов _part, _batch и т.д.) отображаются
+ * в плотные целые номера, а несовместимости хранятся в виде симметричной битовой
+ * матрицы смежности. Проверка совместимости сводится к проверке одного бита.
+ */
+public class ConflictIndex {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> baseIds = new ArrayList<>();
+    private final List<BitSet> rows = new ArrayList<>();
+
+    /**
+     * Построение индекса по списку товаров. Каждый товар получает ссылку на индекс
+     * и номер своего базового идентификатора.
+     *
+     * @param goods список товаров
+     * @return индекс несовместимостей
+     */
+    public static ConflictIndex build(Collection<Good> goods) {
+        ConflictIndex index = new ConflictIndex();
+        for (Good good : goods) {
+            index.register(good);
+        }
+        return index;
+    }
+
+    /**
+     * Регистрация товара в индексе: добавление его несовместимостей в матрицу
+     *
+     * @param good товар
+     * @return номер базового идентификатора товара
+     */
+    public int register(Good good) {
+        int id = intern(good.normalizeId(good.getId()));
+        List<String> incompatibilities = good.getIncompatibilities();
+        if (incompatibilities != null) {
+            for (String incompatibility : incompatibilities) {
+                int other = intern(incompatibility);
+                rows.get(id).set(other);
+                rows.get(other).set(id);
+            }
+        }
+        good.attachConflictIndex(this, id);
+        return id;
+    }
+
+    /**
+     * Получение номера базового идентификатора (с добавлением нового при необходимости)
+     */
+    public int intern(String baseId) {
+        Integer id = ids.get(baseId);
+        if (id == null) {
+            id = baseIds.size();
+            ids.put(baseId, id);
+            baseIds.add(baseId);
+            rows.add(new BitSet());
+        }
+        return id;
+    }
+
+    /**
+     * Проверка несовместимости двух базовых идентификаторов
+     */
+    public boolean conflicts(int first, int second) {
+        return rows.get(first).get(second);
+    }
+
+    /**
+     * Строка матрицы: все базовые идентификаторы, несовместимые с указанным.
+     * Возвращаемое множество нельзя изменять.
+     */
+    public BitSet row(int id) {
+        return rows.get(id);
+    }
+
+    /**
+     * Разбиение графа несовместимостей на компоненты связности.
+     * Товары из разных компонент влияют друг на друга только через грузоподъемность.
+     *
+     * @return номер компоненты для каждого базового идентификатора
+     */
+    public int[] components() {
+        int[] component = new int[baseIds.size()];
+        Arrays.fill(component, -1);
+        int[] stack = new int[baseIds.size()];
+        int count = 0;
+        for (int start = 0; start < component.length; start++) {
+            if (component[start] >= 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = start;
+            component[start] = count;
+            while (top > 0) {
+                BitSet row = rows.get(stack[--top]);
+                for (int other = row.nextSetBit(0); other >= 0; other = row.nextSetBit(other + 1)) {
+                    if (component[other] < 0) {
+                        component[other] = count;
+                        stack[top++] = other;
+                    }
+                }
+            }
+            count++;
+        }
+        return component;
+    }
+
+    public String baseId(int id) {
+        return baseIds.get(id);
+    }
+
+    public int size() {
+        return baseIds.size();
+    }
+}
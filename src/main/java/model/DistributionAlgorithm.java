@@ -1,23 +1,44 @@
 package model;
 
 import jade.core.AID;
-import jade.core.Agent;
-import jade.lang.acl.ACLMessage;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 public class DistributionAlgorithm {
+    private static final int COMPONENT_CHUNK = 512; // Минимальное количество товаров в одной задаче пула
     private final List<Good> goods;
     private final Map<String, AID> vehicleAgents;
     private final Logger logger;
-    private final Agent agent;
-    private final AID serverAgent;
     private final Map<String, Integer> vehicleCapacities;
+    private final PacingPolicy pacing;
+    private final DistributionOptions options;
+    private final ConflictIndex conflictIndex;
+    private final Map<String, VehicleLoadState> loadStates = new HashMap<>();
+    private final List<DistributionListener> listeners = new ArrayList<>();
+    private final Map<String, Long> phaseTimings = new LinkedHashMap<>(); // Длительности этапов, мкс
     private List<Good> unassignedGoods;
+    // Контрольные точки (только для жадного режима, если задан каталог)
+    private Path checkpointDir;
+    private String checkpointKey;
+    private long lastCheckpoint;
+    private boolean resumed;
+    private final List<String> splitIds = new ArrayList<>(); // Товары, замененные частями
+    private final List<Good> splitParts = new ArrayList<>(); // Части разделенных товаров
 
 
     /**
@@ -26,21 +47,86 @@ public class DistributionAlgorithm {
      * @param goods список товаров для распределения
      * @param vehicleAgents карта имен транспортных агентов и их идентификаторов
      * @param logger логгер для записи сообщений
+     * @param options параметры запуска (темп выполнения и т.д.)
      */
-    public DistributionAlgorithm(List<Good> goods, Map<String, AID> vehicleAgents, Map<String, Integer> vehicleCapacities, Logger logger, Agent agent, AID serverAgent) {
+    public DistributionAlgorithm(List<Good> goods, Map<String, AID> vehicleAgents, Map<String, Integer> vehicleCapacities, Logger logger, DistributionOptions options) {
         this.goods = new ArrayList<>(goods);
         this.vehicleAgents = vehicleAgents;
         this.vehicleCapacities = vehicleCapacities;
         this.logger = logger;
-        this.agent = agent;
-        this.serverAgent = serverAgent;
+        this.options = options;
+        this.pacing = options.getPacing();
+        // Граф несовместимостей строится один раз на запуск
+        Phase load = new Phase("load");
+        this.conflictIndex = ConflictIndex.build(this.goods);
+        load.end();
     }
+
+    /**
+     * Подписка на события распределения (назначения, разделения, отчеты о весе)
+     *
+     * @param listener получатель событий
+     */
+    public void addListener(DistributionListener listener) {
+        listeners.add(listener);
+    }
+
+    private void emit(DistributionEvent.Type type, String message, String goodId, String vehicle, int weight) {
+        DistributionEvent event = new DistributionEvent(type, message, goodId, vehicle, weight);
+        for (DistributionListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    private void emit(DistributionEvent.Type type, String message) {
+        emit(type, message, null, null, 0);
+    }
+    /**
+     * Замер этапа алгоритма: гистограмма algorithm.<этап> в Metrics и событие JFR PhaseEvent
+     */
+    private final class Phase {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final PhaseEvent event = new PhaseEvent();
+
+        Phase(String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        void end() {
+            long elapsed = System.nanoTime() - start;
+            Metrics.histogram("algorithm." + name).record(elapsed);
+            phaseTimings.merge(name, elapsed / 1000, Long::sum);
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.mode = options.getMode().name();
+                event.goods = goods.size();
+                event.vehicles = vehicleCapacities.size();
+                event.commit();
+            }
+        }
+    }
+
     public List<Good> getGoods() {
         return goods;
     }
+    /**
+     * Длительности этапов последнего запуска, мкс (повторяющиеся этапы суммируются)
+     */
+    public Map<String, Long> getPhaseTimings() {
+        return phaseTimings;
+    }
     public List<Good> getUnassignedGoods() {
         return unassignedGoods;
     }
+    /**
+     * Запуск продолжен с контрольной точки прерванного запуска
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
     /**
      * Метод для распределения товаров между транспортными агентами
      *
@@ -48,27 +134,25 @@ public class DistributionAlgorithm {
      */
     public Map<String, List<Good>> distributeGoods() {
         logger.info("Начало процесса распределения товаров");
+        Phase total = new Phase("total");
+        Metrics.counter("algorithm.runs").increment();
         unassignedGoods = new ArrayList<>();
         // Подсчет общего веса товаров
         int totalWeight = goods.stream().mapToInt(Good::getWeight).sum();
         logger.info("Общий вес всех товаров: " + totalWeight);
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        emit(DistributionEvent.Type.PHASE, "Общий вес всех товаров: " + totalWeight);
+        pacing.pause();
         // Расчет целевого веса на каждый транспорт
         int numVehicles = vehicleAgents.size();
         int targetWeightPerVehicle = totalWeight / numVehicles;
         logger.info("Целевой вес на каждый транспорт: " + targetWeightPerVehicle);
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        emit(DistributionEvent.Type.PHASE, "Целевой вес на каждый транспорт: " + targetWeightPerVehicle);
+        pacing.pause();
         // Сортировка товаров по весу (от большего к меньшему)
+        Phase phase = new Phase("sort");
         List<Good> sortedGoods = new ArrayList<>(goods);
         sortedGoods.sort((g1, g2) -> Integer.compare(g2.getWeight(), g1.getWeight()));
+        phase.end();
 
         // Создание начального распределения
         Map<String, List<Good>> initialDistribution = new HashMap<>();
@@ -76,53 +160,201 @@ public class DistributionAlgorithm {
             initialDistribution.put(vehicle, new ArrayList<>());
         }
 
-        // Первичное распределение товаров (жадный алгоритм)
-        distributeGoodsGreedy(sortedGoods, initialDistribution, targetWeightPerVehicle, unassignedGoods);
+        // Продолжение прерванного запуска с теми же исходными данными
+        DistributionCheckpoint.Stage resumedStage = null;
+        DistributionCheckpoint checkpoint = loadCheckpoint();
+        if (checkpoint != null) {
+            List<Good> remaining = restoreCheckpoint(checkpoint, initialDistribution);
+            if (remaining != null) {
+                sortedGoods = remaining;
+                resumedStage = checkpoint.getStage();
+                resumed = true;
+                logger.info("Распределение продолжено с контрольной точки (этап " + resumedStage
+                        + ", осталось товаров: " + remaining.size() + ")");
+                emit(DistributionEvent.Type.PHASE, "Распределение продолжено с контрольной точки, осталось товаров: " + remaining.size());
+            }
+        }
+
+        List<Good> leftovers = new ArrayList<>();
+        phase = new Phase(options.getMode().name().toLowerCase(Locale.ROOT));
+        if (resumedStage == DistributionCheckpoint.Stage.CHECKED) {
+            // Первичное распределение и исправление несовместимостей уже выполнены
+            logger.info("Первичное распределение восстановлено из контрольной точки");
+        } else if (options.getMode() == DistributionMode.EXACT) {
+            // Точное распределение методом ветвей и границ
+            distributeGoodsExact(sortedGoods, initialDistribution, leftovers);
+        } else if (options.getMode() == DistributionMode.COMPONENTS) {
+            // Параллельное распределение по компонентам графа несовместимостей
+            distributeGoodsByComponents(sortedGoods, initialDistribution, leftovers);
+        } else {
+            // Первичное распределение товаров (жадный алгоритм)
+            distributeGoodsGreedy(sortedGoods, initialDistribution, targetWeightPerVehicle, unassignedGoods);
+        }
+        phase.end();
 
         // Проверка и корректировка совместимости товаров
+        phase = new Phase("check");
         Map<String, List<Good>> finalDistribution = checkAndFixIncompatibilities(initialDistribution, unassignedGoods);
+        phase.end();
+        if (checkpointKey != null && resumedStage != DistributionCheckpoint.Stage.CHECKED) {
+            writeCheckpoint(DistributionCheckpoint.Stage.CHECKED, finalDistribution, new ArrayList<>());
+        }
+        if (!leftovers.isEmpty()) {
+            // Товары, не вошедшие в решение целиком, пробуем разместить по частям
+            handleIncompatibleGoods(leftovers, finalDistribution, unassignedGoods);
+        }
+        if (options.isImprove()) {
+            // Улучшение плана локальным поиском
+            phase = new Phase("improve");
+            finalDistribution = improveDistribution(finalDistribution, unassignedGoods, targetWeightPerVehicle);
+            phase.end();
+        }
+        Set<String> assignedIds = new HashSet<>();
+        for (List<Good> vehicleGoods : finalDistribution.values()) {
+            for (Good good : vehicleGoods) {
+                assignedIds.add(good.getId());
+            }
+        }
         for (Good good : goods) {
             if (good.isAssigned()) {
                 // Если товар был распределен, не добавляем его в unassignedGoods
-                boolean alreadyAssigned = finalDistribution.values().stream()
-                        .flatMap(List::stream)
-                        .anyMatch(g -> g.getId().equals(good.getId()));
-
-                if (!alreadyAssigned) {
+                if (!assignedIds.contains(good.getId())) {
                     // Если товар по какой-то причине не оказался в распределении, добавляем его в unassignedGoods
                     unassignedGoods.add(good);
                 }
             }
         }
+        if (checkpointKey != null) {
+            // Запуск завершен, продолжать нечего
+            try {
+                DistributionCheckpoint.delete(checkpointDir, checkpointKey);
+            } catch (IOException e) {
+                logger.warning("Не удалось удалить контрольную точку: " + e.getMessage());
+            }
+        }
+        total.end();
 
         return finalDistribution;
     }
     /**
-     * Проверяет, были ли все части товара распределены.
+     * Контрольная точка прерванного запуска с теми же исходными данными
      *
-     * @param good товар для проверки
-     * @param distribution текущее распределение
-     * @return true, если все части товара распределены, иначе false
+     * @return контрольная точка или null (контрольные точки отключены, не найдены или повреждены)
+     */
+    private DistributionCheckpoint loadCheckpoint() {
+        if (options.getCheckpointDir() == null || options.getMode() != DistributionMode.GREEDY) {
+            return null;
+        }
+        checkpointDir = Paths.get(options.getCheckpointDir());
+        checkpointKey = DistributionCache.key(goods, vehicleCapacities, options);
+        try {
+            DistributionCheckpoint checkpoint = DistributionCheckpoint.read(checkpointDir, checkpointKey);
+            if (checkpoint != null && checkpoint.getVehicles().size() != vehicleAgents.size()) {
+                logger.warning("Контрольная точка не соответствует количеству транспорта и не используется");
+                return null;
+            }
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Контрольная точка не прочитана, распределение начинается сначала: " + e.getMessage());
+            try {
+                DistributionCheckpoint.delete(checkpointDir, checkpointKey);
+            } catch (IOException deleteError) {
+                logger.warning("Не удалось удалить поврежденную контрольную точку: " + deleteError.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Восстановление состояния из контрольной точки. Товары контрольной точки сопоставляются
+     * с товарами запуска по id; при любом несоответствии состояние не изменяется.
+     *
+     * @param distribution пустое начальное распределение
+     * @return очередь оставшихся товаров или null, если контрольная точка не подходит
      */
-    private boolean isGoodSplitAndAssigned(Good good, Map<String, List<Good>> distribution) {
-        // Нормализуем ID товара
-        String normalizedId = good.normalizeId(good.getId());
-
-        // Считаем количество всех частей товара
-        long totalParts = goods.stream()
-                .filter(g -> g.normalizeId(g.getId()).equals(normalizedId))
-                .count();
-
-        // Считаем количество назначенных частей
-        long assignedParts = distribution.values().stream()
-                .flatMap(List::stream)
-                .filter(g -> g.normalizeId(g.getId()).equals(normalizedId))
-                .count();
-
-        // Если количество назначенных частей равно количеству всех частей товара, считаем товар назначенным
-        return assignedParts >= totalParts;
+    private List<Good> restoreCheckpoint(DistributionCheckpoint checkpoint, Map<String, List<Good>> distribution) {
+        List<Good> restoredGoods = new ArrayList<>(goods);
+        restoredGoods.addAll(checkpoint.getParts());
+        Set<String> split = new HashSet<>(checkpoint.getSplitIds());
+        restoredGoods.removeIf(good -> split.contains(good.getId()));
+        Map<String, Good> byId = new HashMap<>();
+        for (Good good : restoredGoods) {
+            byId.put(good.getId(), good);
+        }
+
+        List<String> vehicles = DistributionCache.sortedVehicles(distribution);
+        List<List<Good>> loads = new ArrayList<>();
+        for (List<String> ids : checkpoint.getVehicles()) {
+            List<Good> load = resolve(ids, byId);
+            if (load == null) {
+                return null;
+            }
+            loads.add(load);
+        }
+        List<Good> unassigned = resolve(checkpoint.getUnassigned(), byId);
+        List<Good> remaining = resolve(checkpoint.getRemaining(), byId);
+        if (unassigned == null || remaining == null) {
+            return null;
+        }
+
+        goods.clear();
+        goods.addAll(restoredGoods);
+        splitIds.addAll(checkpoint.getSplitIds());
+        splitParts.addAll(checkpoint.getParts());
+        for (int v = 0; v < vehicles.size(); v++) {
+            distribution.get(vehicles.get(v)).addAll(loads.get(v));
+        }
+        unassignedGoods.addAll(unassigned);
+        Set<String> parts = new HashSet<>();
+        checkpoint.getParts().forEach(part -> parts.add(part.getId()));
+        for (List<Good> load : loads) {
+            load.stream().filter(good -> parts.contains(good.getId())).forEach(good -> good.setAssigned(true));
+        }
+        return remaining;
     }
 
+    private List<Good> resolve(List<String> ids, Map<String, Good> byId) {
+        List<Good> resolved = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Good good = byId.get(id);
+            if (good == null) {
+                logger.warning("Товар " + id + " из контрольной точки отсутствует в запуске");
+                return null;
+            }
+            resolved.add(good);
+        }
+        return resolved;
+    }
+
+    /**
+     * Запись контрольной точки: распределение по номерам транспорта, нераспределенные
+     * товары, очередь оставшихся товаров и части разделенных товаров
+     */
+    private void writeCheckpoint(DistributionCheckpoint.Stage stage, Map<String, List<Good>> distribution, List<Good> remaining) {
+        long start = System.nanoTime();
+        List<List<String>> vehicles = new ArrayList<>();
+        for (String vehicle : DistributionCache.sortedVehicles(distribution)) {
+            vehicles.add(ids(distribution.get(vehicle)));
+        }
+        DistributionCheckpoint checkpoint = new DistributionCheckpoint(checkpointKey, stage, vehicles,
+                ids(unassignedGoods), ids(remaining), new ArrayList<>(splitIds), new ArrayList<>(splitParts));
+        try {
+            checkpoint.write(checkpointDir);
+            Metrics.time("algorithm.checkpoint", start);
+            logger.fine("Контрольная точка записана: этап " + stage + ", осталось товаров: " + remaining.size());
+        } catch (IOException e) {
+            logger.warning("Не удалось записать контрольную точку: " + e.getMessage());
+        }
+        lastCheckpoint = System.currentTimeMillis();
+    }
+
+    private static List<String> ids(List<Good> goods) {
+        List<String> ids = new ArrayList<>(goods.size());
+        for (Good good : goods) {
+            ids.add(good.getId());
+        }
+        return ids;
+    }
 
     /**
      * Жадный алгоритм распределения товаров
@@ -133,20 +365,18 @@ public class DistributionAlgorithm {
      */
     private void distributeGoodsGreedy(List<Good> sortedGoods, Map<String, List<Good>> distribution, int targetWeight, List<Good> unassignedGoods) {
         logger.info("Применение жадного алгоритма распределения");
+        emit(DistributionEvent.Type.PHASE, "Начало жадного алгоритма распределения.");
 
-        ACLMessage startGreedyNotification = new ACLMessage(ACLMessage.INFORM);
-        startGreedyNotification.addReceiver(serverAgent);
-        startGreedyNotification.setContent("NOTIFICATION: Начало жадного алгоритма распределения.");
-        agent.send(startGreedyNotification);
-
-        // Карта текущих весов транспортов
+        // Карта текущих весов транспортов (при продолжении запуска транспорт уже загружен)
         Map<String, Integer> currentWeights = new HashMap<>();
-        for (String vehicleName : distribution.keySet()) {
-            currentWeights.put(vehicleName, 0);
+        for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
+            currentWeights.put(entry.getKey(), entry.getValue().stream().mapToInt(Good::getWeight).sum());
         }
 
         // Распределение товаров
-        for (Good good : sortedGoods) {
+        lastCheckpoint = System.currentTimeMillis();
+        for (int i = 0; i < sortedGoods.size(); i++) {
+            Good good = sortedGoods.get(i);
             // Находим транспорт с наименьшим текущим весом
             String targetVehicle = currentWeights.entrySet().stream()
                     .filter(entry -> {
@@ -163,29 +393,329 @@ public class DistributionAlgorithm {
                 // Обновляем текущий вес
                 currentWeights.put(targetVehicle, currentWeights.get(targetVehicle) + good.getWeight());
                 logger.info("Товар " + good.getId() + " назначен транспорту " + targetVehicle);
-
-                ACLMessage assignmentNotification = new ACLMessage(ACLMessage.INFORM);
-                assignmentNotification.addReceiver(serverAgent);
-                assignmentNotification.setContent("NOTIFICATION: Товар " + good.getId() + " назначен транспорту " + targetVehicle);
-                agent.send(assignmentNotification);
+                emit(DistributionEvent.Type.ASSIGNMENT, "Товар " + good.getId() + " назначен транспорту " + targetVehicle,
+                        good.getId(), targetVehicle, good.getWeight());
             } else {
                 logger.warning("Товар " + good.getId() + " не может быть размещён (превышена грузоподъёмность)");
+                emit(DistributionEvent.Type.UNASSIGNED, "Товар " + good.getId() + " не может быть размещён (превышена грузоподъёмность)",
+                        good.getId(), null, good.getWeight());
                 unassignedGoods.add(good);
             }
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            pacing.pause();
+            if (checkpointKey != null && System.currentTimeMillis() - lastCheckpoint >= options.getCheckpointInterval()) {
+                writeCheckpoint(DistributionCheckpoint.Stage.GREEDY, distribution, sortedGoods.subList(i + 1, sortedGoods.size()));
             }
         }
 
         // Логирование результатов
         logTotalWeights(distribution);
+        emit(DistributionEvent.Type.PHASE, "Жадный алгоритм распределения завершен.");
+    }
+
+    /**
+     * Точное распределение товаров методом ветвей и границ с ограничением по времени.
+     * Товары не делятся; если бюджет времени исчерпан, используется лучшее найденное решение.
+     *
+     * @param sortedGoods отсортированный список товаров
+     * @param distribution текущее распределение
+     * @param leftovers список товаров, не вошедших в решение
+     */
+    private void distributeGoodsExact(List<Good> sortedGoods, Map<String, List<Good>> distribution, List<Good> leftovers) {
+        logger.info("Применение точного алгоритма распределения (метод ветвей и границ)");
+        emit(DistributionEvent.Type.PHASE, "Начало точного алгоритма распределения.");
+
+        List<String> vehicles = new ArrayList<>(distribution.keySet());
+        vehicles.sort(String::compareTo);
+        PackingInstance instance = new PackingInstance(sortedGoods, vehicles, vehicleCapacities);
+        BranchAndBoundSolver.Result result = new BranchAndBoundSolver(
+                instance, options.getTimeBudgetMillis(), options.getParallelism()).solve();
+
+        int[] assignment = result.getAssignment();
+        for (int i = 0; i < instance.size(); i++) {
+            Good good = instance.good(i);
+            if (assignment[i] >= 0) {
+                String vehicle = instance.vehicle(assignment[i]);
+                distribution.get(vehicle).add(good);
+                logger.info("Товар " + good.getId() + " назначен транспорту " + vehicle);
+                emit(DistributionEvent.Type.ASSIGNMENT, "Товар " + good.getId() + " назначен транспорту " + vehicle,
+                        good.getId(), vehicle, good.getWeight());
+            } else {
+                logger.warning("Товар " + good.getId() + " не может быть размещён");
+                emit(DistributionEvent.Type.UNASSIGNED, "Товар " + good.getId() + " не может быть размещён",
+                        good.getId(), null, good.getWeight());
+                leftovers.add(good);
+            }
+        }
+        logger.info((result.isOptimal() ? "Найдено оптимальное решение" : "Бюджет времени исчерпан, используется лучшее решение") +
+                ": нераспределенный вес " + result.getUnassignedWeight() + ", узлов дерева поиска " + result.getNodes());
+
+        logTotalWeights(distribution);
+        emit(DistributionEvent.Type.PHASE, "Точный алгоритм распределения завершен.");
+    }
+
+    /**
+     * Распределение по компонентам связности графа несовместимостей.
+     * Каждой компоненте выделяется доля грузоподъемности каждого транспорта,
+     * пропорциональная ее весу; компоненты распределяются параллельно в ForkJoinPool
+     * с проверкой совместимости. Товары без несовместимостей и товары, не поместившиеся
+     * в свою долю, размещаются последним последовательным проходом по фактическому остатку.
+     *
+     * @param sortedGoods отсортированный список товаров
+     * @param distribution текущее распределение
+     * @param leftovers список товаров, не вошедших в решение
+     */
+    private void distributeGoodsByComponents(List<Good> sortedGoods, Map<String, List<Good>> distribution, List<Good> leftovers) {
+        logger.info("Применение распределения по компонентам связности");
+        emit(DistributionEvent.Type.PHASE, "Начало распределения по компонентам связности.");
+
+        List<String> vehicles = new ArrayList<>(distribution.keySet());
+        vehicles.sort(String::compareTo);
+        int[] componentOf = conflictIndex.components();
+        Map<Integer, List<Good>> components = new HashMap<>();
+        List<Good> unconstrained = new ArrayList<>();
+        long constrainedWeight = 0;
+        for (Good good : sortedGoods) {
+            int id = good.getConflictId();
+            if (id < 0 || conflictIndex.row(id).isEmpty()) {
+                unconstrained.add(good);
+            } else {
+                // Порядок по убыванию веса сохраняется внутри компоненты
+                components.computeIfAbsent(componentOf[id], k -> new ArrayList<>()).add(good);
+                constrainedWeight += good.getWeight();
+            }
+        }
+        logger.info("Компонент с несовместимостями: " + components.size() +
+                ", товаров без несовместимостей: " + unconstrained.size());
+
+        // Крупные компоненты - отдельные задачи, мелкие объединяются в пакеты
+        List<List<Good>> ordered = new ArrayList<>(components.values());
+        ordered.sort((c1, c2) -> Integer.compare(c2.size(), c1.size()));
+        List<Callable<List<int[]>>> tasks = new ArrayList<>();
+        List<List<List<Good>>> chunks = new ArrayList<>();
+        List<List<Good>> chunk = new ArrayList<>();
+        int chunkSize = 0;
+        for (List<Good> component : ordered) {
+            chunk.add(component);
+            chunkSize += component.size();
+            if (chunkSize >= COMPONENT_CHUNK) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkSize = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        long sliceBase = Math.max(1, constrainedWeight);
+        for (List<List<Good>> task : chunks) {
+            tasks.add(() -> {
+                List<int[]> assignments = new ArrayList<>();
+                for (List<Good> component : task) {
+                    assignments.add(packComponent(component, vehicles, sliceBase));
+                }
+                return assignments;
+            });
+        }
+
+        // Результаты применяются в вызывающем потоке: слушатели событий не потокобезопасны
+        Map<String, VehicleLoadState> states = new HashMap<>();
+        for (String vehicle : vehicles) {
+            states.put(vehicle, new VehicleLoadState(vehicle, vehicleCapacities.get(vehicle), conflictIndex));
+        }
+        List<List<int[]>> results = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, options.getParallelism()));
+        try {
+            for (Future<List<int[]>> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            // Прерванные компоненты целиком переходят в последний проход
+            Thread.currentThread().interrupt();
+            results.clear();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка распределения компоненты", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Good> remaining = new ArrayList<>();
+        for (int t = 0; t < chunks.size(); t++) {
+            for (int c = 0; c < chunks.get(t).size(); c++) {
+                List<Good> component = chunks.get(t).get(c);
+                int[] assignment = t < results.size() ? results.get(t).get(c) : null;
+                for (int i = 0; i < component.size(); i++) {
+                    Good good = component.get(i);
+                    if (assignment != null && assignment[i] >= 0) {
+                        placeComponentGood(good, vehicles.get(assignment[i]), distribution, states);
+                    } else {
+                        remaining.add(good);
+                    }
+                }
+            }
+        }
+
+        // Последний проход: сначала не поместившиеся в долю товары, затем товары без несовместимостей
+        remaining.sort((g1, g2) -> Integer.compare(g2.getWeight(), g1.getWeight()));
+        remaining.addAll(unconstrained);
+        for (Good good : remaining) {
+            String target = null;
+            for (String vehicle : vehicles) {
+                VehicleLoadState state = states.get(vehicle);
+                if (state.canAccept(good) && (target == null || state.getLoad() < states.get(target).getLoad())) {
+                    target = vehicle;
+                }
+            }
+            if (target != null) {
+                placeComponentGood(good, target, distribution, states);
+            } else {
+                emit(DistributionEvent.Type.UNASSIGNED, "Товар " + good.getId() + " не может быть размещён",
+                        good.getId(), null, good.getWeight());
+                leftovers.add(good);
+            }
+        }
+        logTotalWeights(distribution);
+        emit(DistributionEvent.Type.PHASE, "Распределение по компонентам связности завершено.");
+    }
+
+    /**
+     * Распределение одной компоненты в пределах выделенных долей грузоподъемности.
+     * Выполняется в потоке пула, поэтому работает только с собственным состоянием.
+     *
+     * @return номер транспорта для каждого товара компоненты, -1 если товар не поместился
+     */
+    private int[] packComponent(List<Good> component, List<String> vehicles, long sliceBase) {
+        long componentWeight = 0;
+        for (Good good : component) {
+            componentWeight += good.getWeight();
+        }
+        VehicleLoadState[] slices = new VehicleLoadState[vehicles.size()];
+        for (int v = 0; v < slices.length; v++) {
+            String vehicle = vehicles.get(v);
+            int slice = (int) (vehicleCapacities.get(vehicle) * componentWeight / sliceBase);
+            slices[v] = new VehicleLoadState(vehicle, slice, conflictIndex);
+        }
+        int[] assignment = new int[component.size()];
+        for (int i = 0; i < component.size(); i++) {
+            Good good = component.get(i);
+            int target = -1;
+            for (int v = 0; v < slices.length; v++) {
+                // Наименее загруженная доля относительно ее размера
+                if (slices[v].canAccept(good) && (target < 0 || (long) slices[v].getLoad() * slices[target].getCapacity()
+                        < (long) slices[target].getLoad() * slices[v].getCapacity())) {
+                    target = v;
+                }
+            }
+            if (target >= 0) {
+                slices[target].add(good);
+            }
+            assignment[i] = target;
+        }
+        return assignment;
+    }
+
+    private void placeComponentGood(Good good, String vehicle, Map<String, List<Good>> distribution,
+                                    Map<String, VehicleLoadState> states) {
+        distribution.get(vehicle).add(good);
+        states.get(vehicle).add(good);
+        logger.fine("Товар " + good.getId() + " назначен транспорту " + vehicle);
+        emit(DistributionEvent.Type.ASSIGNMENT, "Товар " + good.getId() + " назначен транспорту " + vehicle,
+                good.getId(), vehicle, good.getWeight());
+    }
+
+    /**
+     * Улучшение распределения локальным поиском: уменьшение количества нераспределенных
+     * и разделенных товаров и выравнивание загрузки относительно целевого веса.
+     * Части товара, оказавшиеся в одном транспорте, объединяются обратно.
+     *
+     * @param distribution текущее распределение
+     * @param unassignedGoods список нераспределенных товаров (обновляется)
+     * @param targetWeight целевой вес на каждый транспорт
+     * @return улучшенное распределение
+     */
+    private Map<String, List<Good>> improveDistribution(Map<String, List<Good>> distribution, List<Good> unassignedGoods, int targetWeight) {
+        logger.info("Улучшение распределения локальным поиском");
+        emit(DistributionEvent.Type.PHASE, "Начало улучшения распределения локальным поиском.");
+
+        List<String> vehicles = new ArrayList<>(distribution.keySet());
+        vehicles.sort(String::compareTo);
+        List<Good> items = new ArrayList<>();
+        List<Integer> initial = new ArrayList<>();
+        for (int v = 0; v < vehicles.size(); v++) {
+            for (Good good : distribution.get(vehicles.get(v))) {
+                items.add(good);
+                initial.add(v);
+            }
+        }
+        for (Good good : unassignedGoods) {
+            items.add(good);
+            initial.add(-1);
+        }
+        PackingInstance instance = new PackingInstance(items, vehicles, vehicleCapacities);
+        LocalSearchImprover improver = new LocalSearchImprover(instance, targetWeight, options.getObjective(),
+                options.getSeeds(), options.getIterations(), options.getParallelism());
+        LocalSearchImprover.Result result;
+        try {
+            result = improver.improve(initial.stream().mapToInt(Integer::intValue).toArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return distribution;
+        }
+        logger.info("Локальный поиск: стоимость плана " + result.getInitialCost() + " -> " + result.getCost());
+        if (result.getCost() >= result.getInitialCost()) {
+            return distribution;
+        }
 
-        ACLMessage endGreedyNotification = new ACLMessage(ACLMessage.INFORM);
-        endGreedyNotification.addReceiver(serverAgent);
-        endGreedyNotification.setContent("NOTIFICATION: Жадный алгоритм распределения завершен.");
-        agent.send(endGreedyNotification);
+        // Сборка улучшенного плана
+        Map<String, List<Good>> improved = new HashMap<>();
+        for (String vehicle : vehicles) {
+            improved.put(vehicle, new ArrayList<>());
+        }
+        unassignedGoods.clear();
+        Map<String, Integer> partsPerOrigin = new HashMap<>();
+        int[] assignment = result.getAssignment();
+        for (int i = 0; i < instance.size(); i++) {
+            Good good = instance.good(i);
+            if (good.isPart()) {
+                partsPerOrigin.merge(good.getOriginId(), 1, Integer::sum);
+            }
+            if (assignment[i] >= 0) {
+                improved.get(vehicles.get(assignment[i])).add(good);
+                good.setAssigned(true);
+            } else {
+                unassignedGoods.add(good);
+                good.setAssigned(false);
+            }
+        }
+
+        // Объединение частей, которые целиком оказались в одном транспорте
+        Set<Good> mergedParts = new HashSet<>();
+        for (Map.Entry<String, List<Good>> entry : improved.entrySet()) {
+            Map<String, List<Good>> partsByOrigin = new HashMap<>();
+            for (Good good : entry.getValue()) {
+                if (good.isPart()) {
+                    partsByOrigin.computeIfAbsent(good.getOriginId(), k -> new ArrayList<>()).add(good);
+                }
+            }
+            for (List<Good> parts : partsByOrigin.values()) {
+                if (parts.size() > 1 && parts.size() == partsPerOrigin.get(parts.get(0).getOriginId())) {
+                    Good merged = Good.merge(parts);
+                    merged.setAssigned(true);
+                    entry.getValue().removeAll(parts);
+                    entry.getValue().add(merged);
+                    mergedParts.addAll(parts);
+                    goods.add(merged);
+                    logger.info("Части товара " + merged.getId() + " объединены в транспорте " + entry.getKey());
+                }
+            }
+        }
+        if (!mergedParts.isEmpty()) {
+            goods.removeAll(mergedParts);
+        }
+
+        emit(DistributionEvent.Type.PHASE, "Локальный поиск улучшил план: стоимость " +
+                Math.round(result.getInitialCost()) + " -> " + Math.round(result.getCost()) + ".");
+        logTotalWeights(improved);
+        return improved;
     }
 
     /**
@@ -198,21 +728,18 @@ public class DistributionAlgorithm {
         logger.info("Проверка совместимости товаров...");
         Map<String, List<Good>> newDistribution = new HashMap<>();
         List<Good> incompatibleGoods = new ArrayList<>(); // Список для несовместимых товаров
+        loadStates.clear();
 
         for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
             List<Good> compatibleGoods = new ArrayList<>();
+            VehicleLoadState state = new VehicleLoadState(entry.getKey(), vehicleCapacities.get(entry.getKey()), conflictIndex);
+            loadStates.put(entry.getKey(), state);
             for (Good good : entry.getValue()) {
-                boolean compatible = true;
-                for (Good existing : compatibleGoods) {
-                    if (!good.isCompatibleWith(existing)) {
-                        logger.warning("Несовместимость: " + good.getId() + " и " + existing.getId());
-                        compatible = false;
-                        break;
-                    }
-                }
-                if (compatible) {
+                if (state.isCompatible(good)) {
                     compatibleGoods.add(good);
+                    state.add(good);
                 } else {
+                    logger.warning("Несовместимость: товар " + good.getId() + " несовместим с грузом транспорта " + entry.getKey());
                     incompatibleGoods.add(good); // Добавляем несовместимый товар в список
                 }
 
@@ -237,58 +764,82 @@ public class DistributionAlgorithm {
             List<Good> unassignedGoods
     ) {
         logger.info("Обработка несовместимых товаров: " + incompatibleGoods.size() + " товаров");
+        Phase phase = new Phase("split");
+        SplitPlanner planner = new SplitPlanner(options.getSplitMinWeight(), options.getSplitMaxParts());
         List<Good> newGoods = new ArrayList<>();
         List<Good> unassignedParts = new ArrayList<>();
 
         for (Good good : incompatibleGoods) {
-            if (good.getWeight() > 1) {
-                logger.info("Разделение товара " + good.getId() + " на части");
-
-                // Делим товар на части
-                int[] partWeights = {
-                        good.getWeight() / 2,
-                        good.getWeight() - good.getWeight() / 2
-                };
-                List<Good> parts = good.split(partWeights);
+            SplitDecisionEvent decision = new SplitDecisionEvent();
+            decision.begin();
+            decision.good = good.getId();
+            decision.weight = good.getWeight();
+            SplitPlanner.Plan plan = planner.plan(good, loadStates.values());
+            if (good.getWeight() > 1 && plan.size() > 1) {
+                logger.info("Разделение товара " + good.getId() + " на " + plan.size() + " части по остаткам грузоподъемности");
+
+                // Части по остаткам совместимого транспорта; последняя часть без транспорта остается нераспределенной
+                List<Good> parts = good.split(plan.getWeights());
+                Metrics.counter("algorithm.splits").increment();
+                Metrics.counter("algorithm.split_parts").add(parts.size());
+                emit(DistributionEvent.Type.SPLIT, "Товар " + good.getId() + " разделен на " + parts.size() + " части",
+                        good.getId(), null, good.getWeight());
                 goods.remove(good); // Удаляем исходный товар
                 goods.addAll(parts); // Добавляем ВСЕ части в goods
-                for (Good part : parts) {
-                    // Пытаемся распределить часть
-                    boolean assigned = assignGoodToCompatibleVehicle(part, distribution);
-                    part.setAssigned(assigned);
-
-                    if (assigned) {
+                splitIds.add(good.getId());
+                splitParts.addAll(parts);
+                decision.split = true;
+                decision.parts = parts.size();
+                for (int i = 0; i < parts.size(); i++) {
+                    Good part = parts.get(i);
+                    String vehicle = plan.getVehicle(i);
+                    if (vehicle != null) {
+                        placeGood(part, vehicle, distribution);
                         newGoods.add(part);
+                        decision.assignedParts++;
                     } else {
+                        part.setAssigned(false);
+                        logger.severe("Не удалось распределить часть " + part.getId() + ": недостаточно совместимой грузоподъемности.");
+                        emit(DistributionEvent.Type.UNASSIGNED, "Не удалось распределить товар " + part.getId(),
+                                part.getId(), null, part.getWeight());
                         unassignedParts.add(part); // Неудачные части
                     }
                 }
             } else {
-                // Для товаров, которые нельзя разделить
-                boolean assigned = assignGoodToCompatibleVehicle(good, distribution);
+                // Товар помещается целиком (транспорт с наименьшим подходящим остатком) или не делится
+                boolean assigned;
+                if (plan.size() == 1 && plan.getVehicle(0) != null) {
+                    placeGood(good, plan.getVehicle(0), distribution);
+                    assigned = true;
+                } else {
+                    assigned = assignGoodToCompatibleVehicle(good, distribution);
+                }
                 good.setAssigned(assigned);
 
+                decision.parts = 1;
                 if (assigned) {
                     newGoods.add(good);
+                    decision.assignedParts = 1;
                 } else {
                     unassignedParts.add(good); // Неудачные целые товары
                 }
             }
+            decision.commit();
         }
 
         // Добавляем все неудачные части/товары в общий список
         unassignedGoods.addAll(unassignedParts);
+        phase.end();
 
         logTotalWeights(distribution);
-        try {
-            Thread.sleep(2000); // Имитация задержки
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        pacing.pause();
     }
 
     /**
-     * Назначение товара совместимому транспорту
+     * Назначение товара совместимому транспорту.
+     * Вес и несовместимости груза берутся из инкрементального состояния транспорта,
+     * поэтому проверка каждого транспорта выполняется за O(1). Результат детерминирован,
+     * поэтому повторные попытки не нужны.
      *
      * @param good товар для назначения
      * @param distribution текущее распределение
@@ -296,55 +847,48 @@ public class DistributionAlgorithm {
      */
     private boolean assignGoodToCompatibleVehicle(Good good, Map<String, List<Good>> distribution) {
         logger.info("Поиск совместимого транспорта для товара " + good.getId());
-        int maxAttempts = 3;
-        int attempts = 0;
-        boolean assigned = false;
-
-        while (attempts < maxAttempts && !assigned) {
-            for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
-                String vehicleName = entry.getKey();
-                List<Good> vehicleGoods = entry.getValue();
-                int currentWeight = vehicleGoods.stream().mapToInt(Good::getWeight).sum();
-
-                boolean isCompatible = vehicleGoods.stream()
-                        .allMatch(existingGood -> good.isCompatibleWith(existingGood));
-                boolean canFit = (currentWeight + good.getWeight()) <= vehicleCapacities.get(vehicleName);
-
-                if (isCompatible && canFit) {
-                    vehicleGoods.add(good);
-                    logger.info("Товар " + good.getId() + " назначен транспорту " + vehicleName);
-                    good.setAssigned(true);
-                    assigned = true;
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    break;
-                }
-            }
-            attempts++;
-            if (!assigned) {
-                logger.warning("Попытка " + attempts + ": не найдено совместимого транспорта для " + good.getId());
+
+        for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
+            String vehicleName = entry.getKey();
+            VehicleLoadState state = loadStates.get(vehicleName);
+
+            if (state.canAccept(good)) {
+                placeGood(good, vehicleName, distribution);
+                return true;
             }
         }
 
-        if (!assigned) {
-            logger.severe("Не удалось распределить товар " + good.getId() + " после " + maxAttempts + " попыток.");
-        }
-        return assigned;
+        logger.severe("Не удалось распределить товар " + good.getId() + ": нет совместимого транспорта.");
+        emit(DistributionEvent.Type.UNASSIGNED, "Не удалось распределить товар " + good.getId(),
+                good.getId(), null, good.getWeight());
+        return false;
+    }
+
+    /**
+     * Размещение товара на транспорт, проверенный заранее
+     *
+     * @param good товар
+     * @param vehicleName транспорт
+     * @param distribution текущее распределение
+     */
+    private void placeGood(Good good, String vehicleName, Map<String, List<Good>> distribution) {
+        distribution.get(vehicleName).add(good);
+        loadStates.get(vehicleName).add(good);
+        logger.info("Товар " + good.getId() + " назначен транспорту " + vehicleName);
+        emit(DistributionEvent.Type.ASSIGNMENT, "Товар " + good.getId() + " назначен транспорту " + vehicleName,
+                good.getId(), vehicleName, good.getWeight());
+        good.setAssigned(true);
+        pacing.pause();
     }
+
     private void logTotalWeights(Map<String, List<Good>> distribution) {
         logger.info("Итоговые веса транспортных средств:");
 
         for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
             int totalWeight = entry.getValue().stream().mapToInt(Good::getWeight).sum();
             logger.info("Транспорт " + entry.getKey() + " имеет общий вес товаров: " + totalWeight);
-
-            ACLMessage vehicleNotification = new ACLMessage(ACLMessage.INFORM);
-            vehicleNotification.addReceiver(serverAgent);
-            vehicleNotification.setContent("NOTIFICATION: Транспорт " + entry.getKey() + " имеет общий вес товаров: " + totalWeight);
-            agent.send(vehicleNotification);
+            emit(DistributionEvent.Type.WEIGHT_REPORT, "Транспорт " + entry.getKey() + " имеет общий вес товаров: " + totalWeight,
+                    null, entry.getKey(), totalWeight);
         }
     }
 }
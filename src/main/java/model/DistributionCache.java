@@ -0,0 +1,268 @@
+package model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Кэш результатов распределения с адресацией по содержимому.
+ * Ключ - SHA-256 канонического представления исходных данных: товаров (в порядке id,
+ * с упорядоченными несовместимостями), грузоподъемностей транспорта (в порядке имен)
+ * и параметров, влияющих на результат. Поэтому запросы, отличающиеся только порядком
+ * товаров или именами транспортных агентов, получают один и тот же результат.
+ *
+ * Результат хранится по номерам транспорта, а не по именам: имена транспортных агентов
+ * уникальны для каждого задания. Вытеснение - LRU по количеству записей и по сроку
+ * хранения; при указании каталога записи дополнительно сохраняются на диск.
+ * Методы синхронизированы: кэш общий для всех агентов-моделей процесса.
+ */
+public class DistributionCache {
+    private static final Gson GSON = new Gson();
+    private static final Logger logger = Logger.getLogger(DistributionCache.class.getName());
+
+    /**
+     * Сохраненный результат: товары по номерам транспорта и нераспределенные товары
+     */
+    private static final class Entry {
+        long createdAt;
+        List<List<Good>> vehicles;
+        List<Good> unassigned;
+    }
+
+    /**
+     * Результат из кэша в терминах текущего задания
+     */
+    public static class Hit {
+        private final Map<String, List<Good>> distribution;
+        private final List<Good> unassignedGoods;
+
+        Hit(Map<String, List<Good>> distribution, List<Good> unassignedGoods) {
+            this.distribution = distribution;
+            this.unassignedGoods = unassignedGoods;
+        }
+
+        public Map<String, List<Good>> getDistribution() { return distribution; }
+        public List<Good> getUnassignedGoods() { return unassignedGoods; }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxEntries = 64;
+    private long ttlMillis = 600_000;
+    private Path directory;
+    private long hits;
+    private long misses;
+
+    /**
+     * Применение параметров кэша (размер, срок хранения, каталог на диске)
+     */
+    public synchronized void configure(int maxEntries, long ttlMillis, String directory) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMillis;
+        this.directory = directory != null ? Paths.get(directory) : null;
+        evict(System.currentTimeMillis());
+    }
+
+    /**
+     * Вычисление ключа кэша
+     *
+     * @param goods товары
+     * @param vehicleCapacities грузоподъемности транспорта
+     * @param options параметры распределения
+     * @return шестнадцатеричная строка SHA-256
+     */
+    public static String key(List<Good> goods, Map<String, Integer> vehicleCapacities, DistributionOptions options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+        List<Good> sortedGoods = new ArrayList<>(goods);
+        sortedGoods.sort((g1, g2) -> g1.getId().compareTo(g2.getId()));
+        StringBuilder canonical = new StringBuilder();
+        canonical.append("goods:").append(sortedGoods.size()).append('\n');
+        for (Good good : sortedGoods) {
+            List<String> incompatibilities = good.getIncompatibilities() != null
+                    ? new ArrayList<>(good.getIncompatibilities()) : new ArrayList<>();
+            Collections.sort(incompatibilities);
+            canonical.append(good.getId().length()).append(':').append(good.getId())
+                    .append(' ').append(good.getWeight());
+            for (String incompatibility : incompatibilities) {
+                canonical.append(' ').append(incompatibility.length()).append(':').append(incompatibility);
+            }
+            canonical.append('\n');
+            if (canonical.length() > 1 << 16) {
+                digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+                canonical.setLength(0);
+            }
+        }
+        canonical.append("vehicles:");
+        for (String vehicle : sortedVehicles(vehicleCapacities)) {
+            canonical.append(' ').append(vehicleCapacities.get(vehicle));
+        }
+        LocalSearchImprover.Objective objective = options.getObjective();
+        canonical.append("\nmode:").append(options.getMode())
+                .append(" budget:").append(options.getTimeBudgetMillis())
+                .append(" improve:").append(options.isImprove())
+                .append(" seeds:").append(options.getSeeds())
+                .append(" iterations:").append(options.getIterations())
+                .append(" objective:").append(objective.getUnassignedWeight())
+                .append('/').append(objective.getSplitPenalty())
+                .append('/').append(objective.getBalanceWeight())
+                .append(" split:").append(options.getSplitMinWeight())
+                .append('/').append(options.getSplitMaxParts());
+        digest.update(canonical.toString().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Поиск результата
+     *
+     * @param key ключ кэша
+     * @param vehicleCapacities транспорт текущего задания (имена для результата)
+     * @return результат или null
+     */
+    public synchronized Hit get(String key, Map<String, Integer> vehicleCapacities) {
+        long now = System.currentTimeMillis();
+        evict(now);
+        Entry entry = entries.get(key);
+        if (entry == null && directory != null) {
+            entry = readFromDisk(key, now);
+            if (entry != null) {
+                entries.put(key, entry);
+                evict(now);
+            }
+        }
+        List<String> vehicles = sortedVehicles(vehicleCapacities);
+        if (entry == null || entry.vehicles.size() != vehicles.size()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        // Копии товаров: результат может изменяться заданием
+        Map<String, List<Good>> distribution = new HashMap<>();
+        for (int v = 0; v < vehicles.size(); v++) {
+            distribution.put(vehicles.get(v), copy(entry.vehicles.get(v), true));
+        }
+        return new Hit(distribution, copy(entry.unassigned, false));
+    }
+
+    /**
+     * Сохранение результата
+     */
+    public synchronized void put(String key, Map<String, List<Good>> distribution, List<Good> unassignedGoods) {
+        Entry entry = new Entry();
+        entry.createdAt = System.currentTimeMillis();
+        entry.vehicles = new ArrayList<>();
+        for (String vehicle : sortedVehicles(distribution)) {
+            entry.vehicles.add(copy(distribution.get(vehicle), true));
+        }
+        entry.unassigned = copy(unassignedGoods, false);
+        entries.put(key, entry);
+        if (directory != null) {
+            writeToDisk(key, entry);
+        }
+        evict(entry.createdAt);
+    }
+
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized int size() { return entries.size(); }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            // Итерация идет от давно использованных записей к недавно использованным
+            if (entries.size() > maxEntries || now - next.getValue().createdAt > ttlMillis) {
+                iterator.remove();
+                deleteFromDisk(next.getKey());
+            }
+        }
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        Path file = directory.resolve(key + ".json");
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Entry entry = GSON.fromJson(reader, Entry.class);
+            if (entry == null || entry.vehicles == null || now - entry.createdAt > ttlMillis) {
+                deleteFromDisk(key);
+                return null;
+            }
+            if (entry.unassigned == null) {
+                entry.unassigned = new ArrayList<>();
+            }
+            return entry;
+        } catch (IOException | JsonParseException e) {
+            logger.warning("Ошибка чтения кэша " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        try {
+            Files.createDirectories(directory);
+            // Запись во временный файл и переименование: читатель не увидит неполную запись
+            Path temp = directory.resolve(key + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(entry, writer);
+            }
+            Files.move(temp, directory.resolve(key + ".json"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warning("Ошибка записи кэша: " + e.getMessage());
+        }
+    }
+
+    private void deleteFromDisk(String key) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key + ".json"));
+        } catch (IOException e) {
+            logger.warning("Ошибка удаления записи кэша: " + e.getMessage());
+        }
+    }
+
+    static List<String> sortedVehicles(Map<String, ?> vehicles) {
+        List<String> names = new ArrayList<>(vehicles.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    private static List<Good> copy(List<Good> goods, boolean assigned) {
+        List<Good> copies = new ArrayList<>(goods.size());
+        for (Good good : goods) {
+            Good copy = new Good(good.getId(), good.getWeight(), good.getIncompatibilities());
+            copy.setAssigned(assigned);
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,176 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Контрольная точка распределения: состояние алгоритма, по которому прерванный
+ * запуск продолжается без повторного расчета.
+ *
+ * Товары хранятся по id (распределение по номерам транспорта в порядке имен,
+ * нераспределенные товары и очередь оставшихся товаров), целиком записываются только
+ * части разделенных товаров - их нет в манифесте. Файл называется по ключу исходных
+ * данных (как в кэше результатов), поэтому продолжить можно только запуск с теми же
+ * товарами, транспортом и параметрами. Запись атомарна: новый файл заменяет старый
+ * после полной записи.
+ */
+public class DistributionCheckpoint {
+    private static final int MAGIC = 0x44434b50; // "DCKP"
+    private static final int VERSION = 1;
+
+    /**
+     * Этап, после которого сделана контрольная точка
+     */
+    public enum Stage {
+        GREEDY,  // Первичное распределение (часть товаров еще в очереди)
+        CHECKED  // Проверка совместимости и разделение товаров завершены
+    }
+
+    private final String key;
+    private final Stage stage;
+    private final List<List<String>> vehicles;  // id товаров по номерам транспорта
+    private final List<String> unassigned;
+    private final List<String> remaining;       // Очередь товаров, еще не рассмотренных
+    private final List<String> splitIds;        // Товары, замененные частями
+    private final List<Good> parts;             // Части разделенных товаров
+
+    public DistributionCheckpoint(String key, Stage stage, List<List<String>> vehicles, List<String> unassigned,
+                                  List<String> remaining, List<String> splitIds, List<Good> parts) {
+        this.key = key;
+        this.stage = stage;
+        this.vehicles = vehicles;
+        this.unassigned = unassigned;
+        this.remaining = remaining;
+        this.splitIds = splitIds;
+        this.parts = parts;
+    }
+
+    public String getKey() { return key; }
+    public Stage getStage() { return stage; }
+    public List<List<String>> getVehicles() { return vehicles; }
+    public List<String> getUnassigned() { return unassigned; }
+    public List<String> getRemaining() { return remaining; }
+    public List<String> getSplitIds() { return splitIds; }
+    public List<Good> getParts() { return parts; }
+
+    /**
+     * Файл контрольной точки для ключа исходных данных
+     */
+    public static Path file(Path directory, String key) {
+        return directory.resolve(key + ".ckpt");
+    }
+
+    /**
+     * Атомарная запись контрольной точки
+     */
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path target = file(directory, key);
+        Path temp = directory.resolve(key + ".ckpt.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeByte(stage.ordinal());
+            out.writeInt(vehicles.size());
+            for (List<String> ids : vehicles) {
+                writeIds(out, ids);
+            }
+            writeIds(out, unassigned);
+            writeIds(out, remaining);
+            writeIds(out, splitIds);
+            byte[] encodedParts = GoodsCodec.encode(parts);
+            out.writeInt(encodedParts.length);
+            out.write(encodedParts);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Чтение контрольной точки
+     *
+     * @return контрольная точка или null, если файла нет
+     * @throws IOException если файл поврежден или записан другой версией
+     *         (количества и длины проверяются по размеру файла до выделения памяти)
+     */
+    public static DistributionCheckpoint read(Path directory, String key) throws IOException {
+        Path source = file(directory, key);
+        if (!Files.exists(source)) {
+            return null;
+        }
+        long limit = Files.size(source);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("неизвестный формат контрольной точки");
+            }
+            String storedKey = in.readUTF();
+            if (!storedKey.equals(key)) {
+                throw new IOException("контрольная точка другого запуска");
+            }
+            int stageIndex = in.readByte();
+            if (stageIndex < 0 || stageIndex >= Stage.values().length) {
+                throw new IOException("неизвестный этап контрольной точки: " + stageIndex);
+            }
+            int vehicleCount = readCount(in, limit);
+            List<List<String>> vehicles = new ArrayList<>(vehicleCount);
+            for (int v = 0; v < vehicleCount; v++) {
+                vehicles.add(readIds(in, limit));
+            }
+            List<String> unassigned = readIds(in, limit);
+            List<String> remaining = readIds(in, limit);
+            List<String> splitIds = readIds(in, limit);
+            byte[] encodedParts = new byte[readCount(in, limit)];
+            in.readFully(encodedParts);
+            List<Good> parts;
+            try {
+                parts = GoodsCodec.decode(encodedParts);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("поврежденные части товаров: " + e.getMessage(), e);
+            }
+            return new DistributionCheckpoint(storedKey, Stage.values()[stageIndex], vehicles, unassigned,
+                    remaining, splitIds, parts);
+        }
+    }
+
+    /**
+     * Удаление контрольной точки (после завершения запуска)
+     */
+    public static void delete(Path directory, String key) throws IOException {
+        Files.deleteIfExists(file(directory, key));
+    }
+
+    private static void writeIds(DataOutputStream out, List<String> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (String id : ids) {
+            out.writeUTF(id);
+        }
+    }
+
+    /**
+     * Количество элементов или длина: не может быть отрицательной или больше размера файла
+     */
+    private static int readCount(DataInputStream in, long limit) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > limit) {
+            throw new IOException("некорректное количество элементов: " + count);
+        }
+        return count;
+    }
+
+    private static List<String> readIds(DataInputStream in, long limit) throws IOException {
+        int size = readCount(in, limit);
+        List<String> ids = new ArrayList<>(Math.min(size, 1 << 16));
+        for (int i = 0; i < size; i++) {
+            ids.add(in.readUTF());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,47 @@
+package model;
+
+/**
+ * Событие процесса распределения: назначение товара, разделение товара,
+ * отчет о весе транспорта или смена фазы алгоритма.
+ */
+public class DistributionEvent {
+    public enum Type {
+        PHASE,
+        ASSIGNMENT,
+        SPLIT,
+        WEIGHT_REPORT,
+        UNASSIGNED
+    }
+
+    private final Type type;
+    private final String message;
+    private final String goodId;
+    private final String vehicle;
+    private final int weight;
+    private final long timestamp;
+
+    public DistributionEvent(Type type, String message, String goodId, String vehicle, int weight) {
+        this.type = type;
+        this.message = message;
+        this.goodId = goodId;
+        this.vehicle = vehicle;
+        this.weight = weight;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    // Геттеры
+    public Type getType() { return type; }
+    public String getMessage() { return message; }
+    public String getGoodId() { return goodId; }
+    public String getVehicle() { return vehicle; }
+    public int getWeight() { return weight; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return "DistributionEvent{" +
+                "type=" + type +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
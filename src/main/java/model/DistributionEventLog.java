@@ -0,0 +1,31 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Журнал событий распределения. Хранит все события одного запуска,
+ * чтобы сервер мог воспроизвести их клиентам в демонстрационном темпе
+ * уже после завершения расчета.
+ */
+public class DistributionEventLog implements DistributionListener {
+    private final List<DistributionEvent> events = new ArrayList<>();
+
+    @Override
+    public void onEvent(DistributionEvent event) {
+        events.add(event);
+    }
+
+    public List<DistributionEvent> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    public void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,8 @@
+package model;
+
+/**
+ * Получатель событий алгоритма распределения
+ */
+public interface DistributionListener {
+    void onEvent(DistributionEvent event);
+}
@@ -0,0 +1,31 @@
+package model;
+
+/**
+ * Режим работы алгоритма распределения
+ */
+public enum DistributionMode {
+    /**
+     * Жадный алгоритм с последующим разделением несовместимых товаров
+     */
+    GREEDY,
+    /**
+     * Точный метод ветвей и границ с ограничением по времени
+     */
+    EXACT,
+    /**
+     * Разбиение графа несовместимостей на компоненты связности, параллельное
+     * распределение компонент по выделенным долям грузоподъемности и
+     * быстрое размещение товаров без несовместимостей в конце
+     */
+    COMPONENTS,
+    /**
+     * Децентрализованное распределение: транспортные агенты делают ставки
+     * на пакеты товаров по протоколу FIPA Contract-Net (выполняется ModelAgent)
+     */
+    CONTRACT_NET,
+    /**
+     * Потоковое распределение: товары поступают по одному или небольшими пакетами
+     * и размещаются сразу по мере поступления (OnlineAssigner, выполняется ModelAgent)
+     */
+    ONLINE
+}
@@ -0,0 +1,239 @@
+package model;
+
+import java.util.Locale;
+
+/**
+ * Параметры запуска алгоритма распределения.
+ * Параметры передаются агенту модели в виде аргументов "ключ=значение".
+ */
+public class DistributionOptions {
+    private long pacingMillis = 0; // По умолчанию без задержек
+    private DistributionMode mode = DistributionMode.GREEDY;
+    private long timeBudgetMillis = 5000; // Ограничение времени точного решателя
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean improve = false; // Улучшение плана локальным поиском
+    private int seeds = Runtime.getRuntime().availableProcessors();
+    private long iterations = 200_000;
+    private double unassignedPenalty = 100;
+    private double splitPenalty = 10;
+    private double balancePenalty = 1;
+    private String manifest; // Путь к манифесту товаров, по умолчанию goods.json из ресурсов
+    private long progressInterval = 1000; // Интервал отправки сводок о ходе распределения, мс
+    private int progressBatch = 50;       // Максимальное количество событий в сводке
+    private int progressInFlight = 4;     // Максимальное количество неподтвержденных сводок
+    private long discoveryTimeout = 2000; // Общий срок ожидания ответов о грузоподъемности, мс
+    private int contractNetBatch = 20;    // Количество товаров в одном объявлении контрактной сети
+    private boolean cacheEnabled = true;  // Повторное использование результатов для тех же исходных данных
+    private int cacheSize = 64;           // Максимальное количество результатов в кэше
+    private long cacheTtl = 600_000;      // Срок хранения результата в кэше, мс
+    private String cacheDir;              // Каталог для сохранения кэша на диск, по умолчанию только в памяти
+    private String seed;                  // Сохраненный план (файл результатов или run-N из журнала), с которого начинается задание
+    private int onlineBatch = 1;          // Размер пакета потокового распределения (1 - решение по каждому товару)
+    private long onlineLinger = 5;        // Максимальное ожидание заполнения пакета, мс
+    private int onlineSeal = 0;           // Остаток грузоподъемности, при котором транспорт закрывается
+    private String journal = RunJournal.DEFAULT_DIRECTORY;          // Каталог журнала запусков
+    private long journalSegment = RunJournal.DEFAULT_SEGMENT_SIZE;  // Размер сегмента журнала, байт
+    private String checkpointDir;         // Каталог контрольных точек, по умолчанию контрольные точки не создаются
+    private long checkpointInterval = 5000; // Период записи контрольных точек, мс
+    private int splitMinWeight = 1;       // Минимальный вес части разделенного товара
+    private int splitMaxParts = 4;        // Максимальное количество частей товара
+
+    public long getPacingMillis() { return pacingMillis; }
+    public void setPacingMillis(long pacingMillis) { this.pacingMillis = pacingMillis; }
+    public DistributionMode getMode() { return mode; }
+    public void setMode(DistributionMode mode) { this.mode = mode; }
+    public long getTimeBudgetMillis() { return timeBudgetMillis; }
+    public void setTimeBudgetMillis(long timeBudgetMillis) { this.timeBudgetMillis = timeBudgetMillis; }
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+    public boolean isImprove() { return improve; }
+    public void setImprove(boolean improve) { this.improve = improve; }
+    public int getSeeds() { return seeds; }
+    public void setSeeds(int seeds) { this.seeds = seeds; }
+    public long getIterations() { return iterations; }
+    public void setIterations(long iterations) { this.iterations = iterations; }
+
+    public String getManifest() { return manifest; }
+    public void setManifest(String manifest) { this.manifest = manifest; }
+
+    public long getProgressInterval() { return progressInterval; }
+    public void setProgressInterval(long progressInterval) { this.progressInterval = progressInterval; }
+    public int getProgressBatch() { return progressBatch; }
+    public void setProgressBatch(int progressBatch) { this.progressBatch = progressBatch; }
+    public int getProgressInFlight() { return progressInFlight; }
+    public void setProgressInFlight(int progressInFlight) { this.progressInFlight = progressInFlight; }
+
+    public long getDiscoveryTimeout() { return discoveryTimeout; }
+    public void setDiscoveryTimeout(long discoveryTimeout) { this.discoveryTimeout = discoveryTimeout; }
+
+    public int getContractNetBatch() { return contractNetBatch; }
+    public void setContractNetBatch(int contractNetBatch) { this.contractNetBatch = contractNetBatch; }
+
+    public boolean isCacheEnabled() { return cacheEnabled; }
+    public void setCacheEnabled(boolean cacheEnabled) { this.cacheEnabled = cacheEnabled; }
+    public int getCacheSize() { return cacheSize; }
+    public void setCacheSize(int cacheSize) { this.cacheSize = cacheSize; }
+    public long getCacheTtl() { return cacheTtl; }
+    public void setCacheTtl(long cacheTtl) { this.cacheTtl = cacheTtl; }
+    public String getCacheDir() { return cacheDir; }
+    public void setCacheDir(String cacheDir) { this.cacheDir = cacheDir; }
+
+    public String getSeed() { return seed; }
+    public void setSeed(String seed) { this.seed = seed; }
+
+    public int getOnlineBatch() { return onlineBatch; }
+    public void setOnlineBatch(int onlineBatch) { this.onlineBatch = onlineBatch; }
+    public long getOnlineLinger() { return onlineLinger; }
+    public void setOnlineLinger(long onlineLinger) { this.onlineLinger = onlineLinger; }
+    public int getOnlineSeal() { return onlineSeal; }
+    public void setOnlineSeal(int onlineSeal) { this.onlineSeal = onlineSeal; }
+
+    public String getJournal() { return journal; }
+    public void setJournal(String journal) { this.journal = journal; }
+    public long getJournalSegment() { return journalSegment; }
+    public void setJournalSegment(long journalSegment) { this.journalSegment = journalSegment; }
+
+    public String getCheckpointDir() { return checkpointDir; }
+    public void setCheckpointDir(String checkpointDir) { this.checkpointDir = checkpointDir; }
+    public long getCheckpointInterval() { return checkpointInterval; }
+    public void setCheckpointInterval(long checkpointInterval) { this.checkpointInterval = checkpointInterval; }
+
+    public int getSplitMinWeight() { return splitMinWeight; }
+    public void setSplitMinWeight(int splitMinWeight) { this.splitMinWeight = splitMinWeight; }
+    public int getSplitMaxParts() { return splitMaxParts; }
+    public void setSplitMaxParts(int splitMaxParts) { this.splitMaxParts = splitMaxParts; }
+
+    public LocalSearchImprover.Objective getObjective() {
+        return new LocalSearchImprover.Objective(unassignedPenalty, splitPenalty, balancePenalty);
+    }
+
+    public PacingPolicy getPacing() {
+        return PacingPolicy.fixedDelay(pacingMillis);
+    }
+
+    /**
+     * Разбор аргументов вида "ключ=значение", начиная с указанной позиции
+     *
+     * @param args аргументы агента
+     * @param offset индекс первого аргумента с параметрами
+     * @return параметры распределения
+     */
+    public static DistributionOptions fromArguments(Object[] args, int offset) {
+        DistributionOptions options = new DistributionOptions();
+        if (args == null) {
+            return options;
+        }
+        for (int i = offset; i < args.length; i++) {
+            String arg = String.valueOf(args[i]);
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            options.set(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        return options;
+    }
+
+    /**
+     * Установка параметра по имени
+     *
+     * @param key имя параметра
+     * @param value значение параметра
+     */
+    public void set(String key, String value) {
+        switch (key) {
+            case "pacing":
+                pacingMillis = Long.parseLong(value);
+                break;
+            case "mode":
+                mode = DistributionMode.valueOf(value.toUpperCase(Locale.ROOT));
+                break;
+            case "budget":
+                timeBudgetMillis = Long.parseLong(value);
+                break;
+            case "threads":
+                parallelism = Integer.parseInt(value);
+                break;
+            case "improve":
+                improve = Boolean.parseBoolean(value);
+                break;
+            case "seeds":
+                seeds = Integer.parseInt(value);
+                break;
+            case "iterations":
+                iterations = Long.parseLong(value);
+                break;
+            case "objective.unassigned":
+                unassignedPenalty = Double.parseDouble(value);
+                break;
+            case "objective.splits":
+                splitPenalty = Double.parseDouble(value);
+                break;
+            case "objective.balance":
+                balancePenalty = Double.parseDouble(value);
+                break;
+            case "manifest":
+                manifest = value;
+                break;
+            case "progress.interval":
+                progressInterval = Long.parseLong(value);
+                break;
+            case "progress.batch":
+                progressBatch = Integer.parseInt(value);
+                break;
+            case "progress.inflight":
+                progressInFlight = Integer.parseInt(value);
+                break;
+            case "discovery.timeout":
+                discoveryTimeout = Long.parseLong(value);
+                break;
+            case "cnet.batch":
+                contractNetBatch = Integer.parseInt(value);
+                break;
+            case "cache":
+                cacheEnabled = Boolean.parseBoolean(value);
+                break;
+            case "cache.size":
+                cacheSize = Integer.parseInt(value);
+                break;
+            case "cache.ttl":
+                cacheTtl = Long.parseLong(value);
+                break;
+            case "cache.dir":
+                cacheDir = value;
+                break;
+            case "seed":
+                seed = value;
+                break;
+            case "online.batch":
+                onlineBatch = Integer.parseInt(value);
+                break;
+            case "online.linger":
+                onlineLinger = Long.parseLong(value);
+                break;
+            case "online.seal":
+                onlineSeal = Integer.parseInt(value);
+                break;
+            case "journal":
+                journal = value;
+                break;
+            case "journal.segment":
+                journalSegment = Long.parseLong(value);
+                break;
+            case "checkpoint.dir":
+                checkpointDir = value;
+                break;
+            case "checkpoint.interval":
+                checkpointInterval = Long.parseLong(value);
+                break;
+            case "split.min":
+                splitMinWeight = Integer.parseInt(value);
+                break;
+            case "split.max":
+                splitMaxParts = Integer.parseInt(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный параметр распределения: " + key);
+        }
+    }
+}
@@ -3,10 +3,14 @@ package model;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 import com.google.gson.annotations.Expose;
 
 
 public class Good {
+    private static final Pattern SUFFIX_PATTERN = Pattern.compile("(_part\\d+|_batch\\d+|_unit\\d+|_box\\d+)$");
+    private static final Pattern PARTS_PATTERN = Pattern.compile("(_part\\d+)+$");
+
     @Expose
     private String id;
     @Expose
@@ -15,6 +19,10 @@ public class Good {
 
     private boolean isAssigned; // Флаг для пометки распределенных товаров
 
+    // Индекс несовместимостей текущего запуска и номер базового идентификатора в нем
+    private transient ConflictIndex conflictIndex;
+    private transient int conflictId = -1;
+
 
     public Good(String id, int weight, List<String> incompatibilities) {
         this.id = id;
@@ -27,9 +35,17 @@ public class Good {
     // Геттеры и сеттеры
     public String getId() { return id; }
     public int getWeight() { return weight; }
+    public List<String> getIncompatibilities() { return incompatibilities; }
+    public int getConflictId() { return conflictId; }
+    public ConflictIndex getConflictIndex() { return conflictIndex; }
     public boolean isAssigned() { return isAssigned; }
     public void setAssigned(boolean assigned) { isAssigned = assigned; }
 
+    void attachConflictIndex(ConflictIndex conflictIndex, int conflictId) {
+        this.conflictIndex = conflictIndex;
+        this.conflictId = conflictId;
+    }
+
     // Метод для разделения товара на части
     public List<Good> split(int[] partWeights) {
         if (Arrays.stream(partWeights).sum() != weight) {
@@ -38,20 +54,51 @@ public class Good {
 
         List<Good> parts = new ArrayList<>();
         for (int i = 0; i < partWeights.length; i++) {
-            parts.add(new Good(id + "_part" + i, partWeights[i], incompatibilities));
+            Good part = new Good(id + "_part" + i, partWeights[i], incompatibilities);
+            // Часть наследует строку матрицы несовместимостей исходного товара
+            part.attachConflictIndex(conflictIndex, conflictId);
+            parts.add(part);
         }
         return parts;
     }
 
     // Проверка на совместимость с другим товаром
     public boolean isCompatibleWith(Good other) {
+        if (conflictIndex != null && conflictIndex == other.conflictIndex) {
+            return !conflictIndex.conflicts(conflictId, other.conflictId);
+        }
         String thisId = normalizeId(this.id);
         String otherId = normalizeId(other.id);
 
         return !this.incompatibilities.contains(otherId) && !other.incompatibilities.contains(thisId);
     }
     public String normalizeId(String id) {
-        return id.replaceAll("(_part\\d+|_batch\\d+|_unit\\d+|_box\\d+)$", "");
+        return SUFFIX_PATTERN.matcher(id).replaceFirst("");
+    }
+
+    /**
+     * Идентификатор исходного товара, из которого получена часть (для целого товара - его id)
+     */
+    public String getOriginId() {
+        return PARTS_PATTERN.matcher(id).replaceFirst("");
+    }
+
+    public boolean isPart() {
+        return !getOriginId().equals(id);
+    }
+
+    /**
+     * Объединение частей обратно в исходный товар
+     *
+     * @param parts все части одного исходного товара
+     * @return исходный товар
+     */
+    public static Good merge(List<Good> parts) {
+        Good first = parts.get(0);
+        int weight = parts.stream().mapToInt(Good::getWeight).sum();
+        Good merged = new Good(first.getOriginId(), weight, first.incompatibilities);
+        merged.attachConflictIndex(first.conflictIndex, first.conflictId);
+        return merged;
     }
     @Override
     public String toString() {
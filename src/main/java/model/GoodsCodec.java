@@ -0,0 +1,189 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактное двоичное представление списка товаров для передачи транспортным агентам
+ * (содержимое ACL-сообщения в виде последовательности байтов).
+ *
+ * Формат: версия, таблица строк (идентификаторы товаров и несовместимостей, каждая
+ * строка встречается один раз), затем товары: номер id в таблице, вес, количество
+ * несовместимостей и их номера. Все целые числа записываются в формате varint.
+ *
+ * Класс не имеет состояния, методы можно вызывать из любых потоков.
+ */
+public final class GoodsCodec {
+    /**
+     * Значение поля language ACL-сообщения с двоичным содержимым
+     */
+    public static final String LANGUAGE = "goods-binary/1";
+    private static final int VERSION = 1;
+
+    private GoodsCodec() {
+    }
+
+    /**
+     * Кодирование списка товаров
+     *
+     * @param goods список товаров
+     * @return двоичное представление
+     */
+    public static byte[] encode(List<Good> goods) {
+        Map<String, Integer> table = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Good good : goods) {
+            index(good.getId(), table, strings);
+            if (good.getIncompatibilities() != null) {
+                for (String incompatibility : good.getIncompatibilities()) {
+                    index(incompatibility, table, strings);
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + goods.size() * 8);
+        writeVarInt(out, VERSION);
+        writeVarInt(out, strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        writeVarInt(out, goods.size());
+        for (Good good : goods) {
+            writeVarInt(out, table.get(good.getId()));
+            writeVarInt(out, good.getWeight());
+            List<String> incompatibilities = good.getIncompatibilities();
+            int count = incompatibilities == null ? 0 : incompatibilities.size();
+            writeVarInt(out, count);
+            for (int i = 0; i < count; i++) {
+                writeVarInt(out, table.get(incompatibilities.get(i)));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Декодирование списка товаров
+     *
+     * @param data двоичное представление
+     * @return список товаров
+     * @throws IllegalArgumentException если данные повреждены или версия не поддерживается
+     */
+    public static List<Good> decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.readVarInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия формата: " + version);
+        }
+        String[] strings = new String[in.readCount()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readString();
+        }
+        int size = in.readCount();
+        List<Good> goods = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = strings[in.readIndex(strings.length)];
+            int weight = in.readVarInt();
+            if (weight < 0) {
+                throw new IllegalArgumentException("Некорректный вес товара " + id + ": " + weight);
+            }
+            int count = in.readCount();
+            List<String> incompatibilities;
+            if (count == 0) {
+                incompatibilities = Collections.emptyList();
+            } else {
+                incompatibilities = new ArrayList<>(count);
+                for (int k = 0; k < count; k++) {
+                    incompatibilities.add(strings[in.readIndex(strings.length)]);
+                }
+            }
+            goods.add(new Good(id, weight, incompatibilities));
+        }
+        return goods;
+    }
+
+    private static void index(String value, Map<String, Integer> table, List<String> strings) {
+        if (!table.containsKey(value)) {
+            table.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Последовательное чтение буфера с проверкой границ
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Некорректное число в позиции " + position);
+        }
+
+        /**
+         * Количество элементов: каждый элемент занимает хотя бы один байт,
+         * поэтому количество не может превышать остаток буфера
+         */
+        int readCount() {
+            int count = readVarInt();
+            if (count < 0 || count > data.length - position) {
+                throw new IllegalArgumentException("Некорректное количество элементов в позиции " + position);
+            }
+            return count;
+        }
+
+        /**
+         * Номер строки в таблице
+         */
+        int readIndex(int tableSize) {
+            int index = readVarInt();
+            if (index < 0 || index >= tableSize) {
+                throw new IllegalArgumentException("Некорректный номер строки " + index + " в позиции " + position);
+            }
+            return index;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length < 0 || length > data.length - position) {
+                throw new IllegalArgumentException("Некорректная длина строки в позиции " + position);
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Неожиданный конец данных");
+            }
+            return data[position++];
+        }
+    }
+}
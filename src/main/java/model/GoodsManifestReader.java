@@ -0,0 +1,151 @@
+package model;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение манифеста товаров (goods.json) без построения дерева документа.
+ * Товары создаются по мере чтения; имена в списках несовместимостей и одинаковые
+ * списки разделяются между товарами (идентификаторы уникальны и не кэшируются),
+ * поэтому расход памяти определяется самой моделью, а не размером JSON.
+ *
+ * Формат: {"goods": [{"id": "...", "weight": 10, "incompatibilities": ["..."]}, ...]}
+ * или массив товаров на верхнем уровне.
+ */
+public class GoodsManifestReader {
+    private final Map<String, String> names = new HashMap<>(); // Имена из списков несовместимостей
+    private final Map<List<String>, List<String>> incompatibilityLists = new HashMap<>();
+
+    /**
+     * Чтение манифеста из файла
+     *
+     * @param path путь к файлу
+     * @return список товаров
+     */
+    public static List<Good> readFile(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return new GoodsManifestReader().readAll(reader);
+        }
+    }
+
+    /**
+     * Чтение манифеста из ресурсов приложения
+     *
+     * @param name имя ресурса
+     * @return список товаров
+     */
+    public static List<Good> readResource(String name) throws IOException {
+        InputStream inputStream = GoodsManifestReader.class.getClassLoader().getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new FileNotFoundException("Файл " + name + " не найден в ресурсах!");
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return new GoodsManifestReader().readAll(reader);
+        }
+    }
+
+    public List<Good> readAll(Reader reader) throws IOException {
+        List<Good> goods = new ArrayList<>();
+        read(reader, goods::add);
+        return goods;
+    }
+
+    /**
+     * Потоковое чтение: каждый товар передается получателю сразу после разбора
+     *
+     * @param reader источник JSON
+     * @param consumer получатель товаров
+     */
+    public void read(Reader reader, Consumer<Good> consumer) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            readGoods(json, consumer);
+            return;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            if (json.nextName().equals("goods")) {
+                readGoods(json, consumer);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private void readGoods(JsonReader json, Consumer<Good> consumer) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            consumer.accept(readGood(json));
+        }
+        json.endArray();
+    }
+
+    private Good readGood(JsonReader json) throws IOException {
+        String id = null;
+        int weight = 0;
+        List<String> incompatibilities = Collections.emptyList();
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "weight":
+                    weight = json.nextInt();
+                    break;
+                case "incompatibilities":
+                    incompatibilities = readIncompatibilities(json);
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (id == null) {
+            throw new IOException("У товара отсутствует id (" + json.getPath() + ")");
+        }
+        return new Good(id, weight, incompatibilities);
+    }
+
+    private List<String> readIncompatibilities(JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return Collections.emptyList();
+        }
+        List<String> values = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+            values.add(intern(json.nextString()));
+        }
+        json.endArray();
+        if (values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Одинаковые списки несовместимостей хранятся в одном экземпляре
+        List<String> compact = List.copyOf(values);
+        List<String> existing = incompatibilityLists.putIfAbsent(compact, compact);
+        return existing != null ? existing : compact;
+    }
+
+    private String intern(String value) {
+        String existing = names.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
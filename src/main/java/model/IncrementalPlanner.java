@@ -0,0 +1,511 @@
+package model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Локальное исправление готового плана при изменении исходных данных.
+ * План хранится вместе с индексом несовместимостей и состоянием загрузки каждого
+ * транспорта, поэтому добавление или удаление товара затрагивает только транспорт,
+ * с которого товар снят или на который он помещен, а новая несовместимость
+ * проверяется только для транспорта, уже содержащего оба товара.
+ * Стоимость изменения зависит от его размера, а не от размера манифеста.
+ *
+ * В отличие от DistributionAlgorithm товары при исправлении не делятся на части:
+ * товар, который не помещается целиком, остается нераспределенным до следующего
+ * полного распределения.
+ */
+public class IncrementalPlanner {
+    private static final Gson GSON = new Gson();
+    private static final Type RESULTS_TYPE = new TypeToken<Map<String, List<Good>>>() {}.getType();
+
+    /**
+     * Результат изменения: товары, добавленные на транспорт и снятые с него,
+     * и выведенный транспорт
+     */
+    public static class Change {
+        private final Map<String, List<Good>> added = new LinkedHashMap<>();
+        private final Map<String, List<String>> removed = new LinkedHashMap<>();
+        private final Set<String> removedVehicles = new LinkedHashSet<>();
+
+        public Map<String, List<Good>> getAdded() { return added; }
+        public Map<String, List<String>> getRemoved() { return removed; }
+        public Set<String> getRemovedVehicles() { return removedVehicles; }
+
+        /**
+         * Транспорт, груз которого изменился (кроме выведенного)
+         */
+        public Set<String> getVehicles() {
+            Set<String> vehicles = new LinkedHashSet<>(removed.keySet());
+            vehicles.addAll(added.keySet());
+            vehicles.removeAll(removedVehicles);
+            return vehicles;
+        }
+
+        void recordAdd(String vehicle, Good good) {
+            added.computeIfAbsent(vehicle, v -> new ArrayList<>()).add(good);
+        }
+
+        void recordRemove(String vehicle, Good good) {
+            // Товар, добавленный в рамках этого же изменения, транспорту еще не отправлялся
+            List<Good> pending = added.get(vehicle);
+            if (pending != null && pending.remove(good)) {
+                if (pending.isEmpty()) {
+                    added.remove(vehicle);
+                }
+                return;
+            }
+            removed.computeIfAbsent(vehicle, v -> new ArrayList<>()).add(good.getId());
+        }
+    }
+
+    private final ConflictIndex conflictIndex = new ConflictIndex();
+    private final Map<String, VehicleLoadState> states = new LinkedHashMap<>();
+    private final Map<String, Map<String, Good>> loads = new HashMap<>();    // Груз транспорта по id товаров
+    private final Map<String, Good> goodsById = new HashMap<>();
+    private final Map<String, String> vehicleOf = new HashMap<>();           // id товара -> транспорт
+    private final Map<String, Set<String>> idsByOrigin = new HashMap<>();    // Исходный товар -> id товара и его частей
+    private final Map<String, Good> unassigned = new LinkedHashMap<>();
+
+    /**
+     * Построение по готовому плану. Товары копируются; товар, который не помещается
+     * на свой транспорт (например, после изменения манифеста или грузоподъемности),
+     * становится нераспределенным.
+     *
+     * @param distribution распределение товаров по транспорту
+     * @param unassignedGoods нераспределенные товары
+     * @param vehicleCapacities грузоподъемности транспорта
+     */
+    public IncrementalPlanner(Map<String, List<Good>> distribution, List<Good> unassignedGoods,
+                              Map<String, Integer> vehicleCapacities) {
+        for (Map.Entry<String, Integer> entry : vehicleCapacities.entrySet()) {
+            states.put(entry.getKey(), new VehicleLoadState(entry.getKey(), entry.getValue(), conflictIndex));
+            loads.put(entry.getKey(), new LinkedHashMap<>());
+        }
+        List<Good> all = new ArrayList<>();
+        distribution.values().forEach(all::addAll);
+        all.addAll(unassignedGoods);
+        for (Good good : all) {
+            if (goodsById.containsKey(good.getId())) {
+                continue;
+            }
+            Good copy = new Good(good.getId(), good.getWeight(), good.getIncompatibilities());
+            conflictIndex.register(copy);
+            goodsById.put(copy.getId(), copy);
+            idsByOrigin.computeIfAbsent(copy.getOriginId(), k -> new LinkedHashSet<>()).add(copy.getId());
+        }
+        for (Map.Entry<String, List<Good>> entry : distribution.entrySet()) {
+            VehicleLoadState state = states.get(entry.getKey());
+            for (Good good : entry.getValue()) {
+                Good copy = goodsById.get(good.getId());
+                if (state != null && !vehicleOf.containsKey(copy.getId()) && state.canAccept(copy)) {
+                    assign(entry.getKey(), copy, null);
+                } else if (!vehicleOf.containsKey(copy.getId())) {
+                    markUnassigned(copy);
+                }
+            }
+        }
+        for (Good good : unassignedGoods) {
+            if (!vehicleOf.containsKey(good.getId())) {
+                markUnassigned(goodsById.get(good.getId()));
+            }
+        }
+    }
+
+    /**
+     * Построение по сохраненным результатам (distribution_results.json).
+     * В файле нет несовместимостей, поэтому они берутся из манифеста по id исходного
+     * товара; товары, которых нет в манифесте, отбрасываются, а нераспределенный
+     * остаток товаров манифеста становится нераспределенным. Транспорт файла
+     * сопоставляется текущему по порядку имен.
+     *
+     * @param reader содержимое файла результатов
+     * @param manifest текущий манифест товаров
+     * @param vehicleCapacities грузоподъемности текущего транспорта
+     * @throws IllegalArgumentException если файл не удалось разобрать
+     */
+    public static IncrementalPlanner fromResults(Reader reader, List<Good> manifest,
+                                                 Map<String, Integer> vehicleCapacities) {
+        Map<String, List<Good>> saved;
+        try {
+            saved = GSON.fromJson(reader, RESULTS_TYPE);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Ошибка разбора результатов: " + e.getMessage(), e);
+        }
+        if (saved == null) {
+            throw new IllegalArgumentException("Файл результатов пуст");
+        }
+        Map<String, Good> manifestById = new HashMap<>();
+        for (Good good : manifest) {
+            manifestById.put(good.getId(), good);
+        }
+
+        List<String> savedVehicles = new ArrayList<>(saved.keySet());
+        List<String> vehicles = new ArrayList<>(vehicleCapacities.keySet());
+        Collections.sort(savedVehicles);
+        Collections.sort(vehicles);
+        Map<String, List<Good>> distribution = new HashMap<>();
+        Map<String, Integer> assignedWeight = new HashMap<>();
+        Map<String, Integer> pieces = new HashMap<>();
+        Set<String> usedIds = new HashSet<>();
+        for (int v = 0; v < savedVehicles.size() && v < vehicles.size(); v++) {
+            List<Good> goods = new ArrayList<>();
+            for (Good good : saved.get(savedVehicles.get(v))) {
+                Good origin = manifestById.get(good.getOriginId());
+                if (origin == null || !usedIds.add(good.getId())) {
+                    continue;
+                }
+                goods.add(new Good(good.getId(), good.getWeight(), origin.getIncompatibilities()));
+                assignedWeight.merge(origin.getId(), good.getWeight(), Integer::sum);
+                pieces.merge(origin.getId(), 1, Integer::sum);
+            }
+            distribution.put(vehicles.get(v), goods);
+        }
+
+        List<Good> unassignedGoods = new ArrayList<>();
+        for (Good good : manifest) {
+            int rest = good.getWeight() - assignedWeight.getOrDefault(good.getId(), 0);
+            if (rest <= 0) {
+                continue;
+            }
+            if (!pieces.containsKey(good.getId())) {
+                unassignedGoods.add(good);
+                continue;
+            }
+            // Недостающий остаток частично распределенного товара - отдельная часть
+            int k = pieces.get(good.getId());
+            while (usedIds.contains(good.getId() + "_part" + k)) {
+                k++;
+            }
+            usedIds.add(good.getId() + "_part" + k);
+            unassignedGoods.add(new Good(good.getId() + "_part" + k, rest, good.getIncompatibilities()));
+        }
+        return new IncrementalPlanner(distribution, unassignedGoods, vehicleCapacities);
+    }
+
+    /**
+     * Добавление товаров. Новые несовместимости учитываются в состоянии транспорта;
+     * если транспорт уже содержит оба несовместимых товара, товары, несовместимые
+     * с новым, снимаются и размещаются заново.
+     *
+     * @throws IllegalArgumentException если товар с таким id уже есть в плане
+     */
+    public Change addGoods(List<Good> goods) {
+        for (Good good : goods) {
+            if (goodsById.containsKey(good.getId())) {
+                throw new IllegalArgumentException("Товар " + good.getId() + " уже есть в плане");
+            }
+        }
+        Change change = new Change();
+        List<Good> toPlace = new ArrayList<>();
+        for (Good good : goods) {
+            Good copy = new Good(good.getId(), good.getWeight(), good.getIncompatibilities());
+            int id = conflictIndex.register(copy);
+            goodsById.put(copy.getId(), copy);
+            idsByOrigin.computeIfAbsent(copy.getOriginId(), k -> new LinkedHashSet<>()).add(copy.getId());
+            List<String> incompatibilities = copy.getIncompatibilities() != null ? copy.getIncompatibilities() : List.of();
+            for (String incompatibility : incompatibilities) {
+                int other = conflictIndex.intern(incompatibility);
+                for (Map.Entry<String, VehicleLoadState> entry : states.entrySet()) {
+                    VehicleLoadState state = entry.getValue();
+                    state.linkConflict(id, other);
+                    if (state.contains(id) && state.contains(other)) {
+                        // Новая несовместимость внутри уже загруженного транспорта
+                        toPlace.addAll(evict(entry.getKey(), other, change));
+                    }
+                }
+            }
+            toPlace.add(copy);
+        }
+        placeAll(toPlace, states.keySet(), change);
+        return change;
+    }
+
+    /**
+     * Удаление товаров по id или по id исходного товара (вместе со всеми его частями).
+     * Освободившееся место заполняется нераспределенными товарами.
+     *
+     * @throws IllegalArgumentException если товар не найден
+     */
+    public Change removeGoods(Collection<String> ids) {
+        List<String> resolved = new ArrayList<>();
+        for (String id : ids) {
+            Set<String> parts = idsByOrigin.get(id);
+            if (parts != null) {
+                resolved.addAll(parts);
+            } else if (goodsById.containsKey(id)) {
+                resolved.add(id);
+            } else {
+                throw new IllegalArgumentException("Товар " + id + " не найден в плане");
+            }
+        }
+        Change change = new Change();
+        Set<String> freed = new LinkedHashSet<>();
+        for (String id : resolved) {
+            Good good = goodsById.remove(id);
+            if (good == null) {
+                continue;
+            }
+            Set<String> parts = idsByOrigin.get(good.getOriginId());
+            parts.remove(id);
+            if (parts.isEmpty()) {
+                idsByOrigin.remove(good.getOriginId());
+            }
+            String vehicle = vehicleOf.get(id);
+            if (vehicle != null) {
+                unassign(vehicle, good, change);
+                freed.add(vehicle);
+            } else {
+                unassigned.remove(id);
+            }
+        }
+        refill(freed, change);
+        return change;
+    }
+
+    /**
+     * Добавление транспорта и заполнение его нераспределенными товарами
+     */
+    public Change addVehicle(String vehicle, int capacity) {
+        if (states.containsKey(vehicle)) {
+            throw new IllegalArgumentException("Транспорт " + vehicle + " уже есть в плане");
+        }
+        states.put(vehicle, new VehicleLoadState(vehicle, capacity, conflictIndex));
+        loads.put(vehicle, new LinkedHashMap<>());
+        Change change = new Change();
+        refill(Collections.singleton(vehicle), change);
+        return change;
+    }
+
+    /**
+     * Вывод транспорта: его груз размещается на остальном транспорте
+     */
+    public Change removeVehicle(String vehicle) {
+        Map<String, Good> load = loads.remove(vehicle);
+        if (load == null) {
+            throw new IllegalArgumentException("Транспорт " + vehicle + " не найден в плане");
+        }
+        states.remove(vehicle);
+        Change change = new Change();
+        change.removedVehicles.add(vehicle);
+        List<Good> toPlace = new ArrayList<>(load.values());
+        for (Good good : toPlace) {
+            vehicleOf.remove(good.getId());
+            good.setAssigned(false);
+        }
+        placeAll(toPlace, states.keySet(), change);
+        return change;
+    }
+
+    /**
+     * Проверка изменения целиком без изменения плана: выводимый транспорт и удаляемые
+     * товары должны быть в плане, добавляемые товары - отсутствовать в нем (с учетом
+     * удаляемых этим же изменением), а имена и значения не должны повторяться
+     *
+     * @throws IllegalArgumentException если изменение нельзя применить
+     */
+    public void validate(PlanDelta delta) {
+        Set<String> removedVehicles = new HashSet<>();
+        for (String vehicle : delta.getRemoveVehicles()) {
+            if (!states.containsKey(vehicle)) {
+                throw new IllegalArgumentException("Транспорт " + vehicle + " не найден в плане");
+            }
+            if (!removedVehicles.add(vehicle)) {
+                throw new IllegalArgumentException("Транспорт " + vehicle + " выводится повторно");
+            }
+        }
+        for (Integer capacity : delta.getAddVehicles()) {
+            if (capacity == null || capacity < 0) {
+                throw new IllegalArgumentException("Некорректная грузоподъемность транспорта: " + capacity);
+            }
+        }
+        Set<String> removedIds = new HashSet<>();
+        for (String id : delta.getRemoveGoods()) {
+            Set<String> parts = idsByOrigin.get(id);
+            if (parts != null) {
+                removedIds.addAll(parts);
+            } else if (goodsById.containsKey(id)) {
+                removedIds.add(id);
+            } else {
+                throw new IllegalArgumentException("Товар " + id + " не найден в плане");
+            }
+        }
+        Set<String> addedIds = new HashSet<>();
+        for (Good good : delta.getAddGoods()) {
+            if (good == null || good.getId() == null) {
+                throw new IllegalArgumentException("У добавляемого товара отсутствует id");
+            }
+            if ((goodsById.containsKey(good.getId()) && !removedIds.contains(good.getId())) || !addedIds.add(good.getId())) {
+                throw new IllegalArgumentException("Товар " + good.getId() + " уже есть в плане");
+            }
+        }
+    }
+
+    /**
+     * Применение изменения целиком (транспорт добавляется с указанными именами).
+     * Изменение предварительно проверяется, поэтому отклоненное изменение план не затрагивает.
+     *
+     * @param delta изменение
+     * @param newVehicles имена для добавляемого транспорта в порядке delta.getAddVehicles()
+     * @return объединенный результат
+     * @throws IllegalArgumentException если изменение нельзя применить
+     */
+    public Change apply(PlanDelta delta, List<String> newVehicles) {
+        validate(delta);
+        if (newVehicles.size() != delta.getAddVehicles().size()) {
+            throw new IllegalArgumentException("Количество имен не совпадает с количеством добавляемого транспорта");
+        }
+        for (String vehicle : newVehicles) {
+            if (states.containsKey(vehicle)) {
+                throw new IllegalArgumentException("Транспорт " + vehicle + " уже есть в плане");
+            }
+        }
+        Change change = new Change();
+        for (String vehicle : delta.getRemoveVehicles()) {
+            merge(change, removeVehicle(vehicle));
+        }
+        for (int i = 0; i < delta.getAddVehicles().size(); i++) {
+            merge(change, addVehicle(newVehicles.get(i), delta.getAddVehicles().get(i)));
+        }
+        if (!delta.getRemoveGoods().isEmpty()) {
+            merge(change, removeGoods(delta.getRemoveGoods()));
+        }
+        if (!delta.getAddGoods().isEmpty()) {
+            merge(change, addGoods(delta.getAddGoods()));
+        }
+        return change;
+    }
+
+    // Геттеры
+    public List<Good> getGoods(String vehicle) {
+        Map<String, Good> load = loads.get(vehicle);
+        return load != null ? new ArrayList<>(load.values()) : new ArrayList<>();
+    }
+
+    public List<Good> getUnassignedGoods() {
+        return new ArrayList<>(unassigned.values());
+    }
+
+    public Map<String, List<Good>> getDistribution() {
+        Map<String, List<Good>> distribution = new HashMap<>();
+        for (String vehicle : states.keySet()) {
+            distribution.put(vehicle, getGoods(vehicle));
+        }
+        return distribution;
+    }
+
+    public int getLoad(String vehicle) {
+        VehicleLoadState state = states.get(vehicle);
+        return state != null ? state.getLoad() : 0;
+    }
+
+    private static void merge(Change target, Change source) {
+        // Снятия и добавления повторяются в порядке выполнения, поэтому применяются так же
+        source.removed.forEach((vehicle, ids) -> {
+            for (String id : ids) {
+                List<Good> pending = target.added.get(vehicle);
+                if (pending != null && pending.removeIf(good -> good.getId().equals(id))) {
+                    if (pending.isEmpty()) {
+                        target.added.remove(vehicle);
+                    }
+                } else {
+                    target.removed.computeIfAbsent(vehicle, v -> new ArrayList<>()).add(id);
+                }
+            }
+        });
+        source.added.forEach((vehicle, goods) ->
+                target.added.computeIfAbsent(vehicle, v -> new ArrayList<>()).addAll(goods));
+        target.removedVehicles.addAll(source.removedVehicles);
+    }
+
+    /**
+     * Снятие с транспорта всех товаров с указанным базовым id
+     */
+    private List<Good> evict(String vehicle, int baseId, Change change) {
+        List<Good> evicted = new ArrayList<>();
+        for (Good good : new ArrayList<>(loads.get(vehicle).values())) {
+            if (good.getConflictId() == baseId) {
+                unassign(vehicle, good, change);
+                unassigned.remove(good.getId());
+                evicted.add(good);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Заполнение транспорта нераспределенными товарами (сначала тяжелые)
+     */
+    private void refill(Collection<String> vehicles, Change change) {
+        if (vehicles.isEmpty() || unassigned.isEmpty()) {
+            return;
+        }
+        List<Good> candidates = new ArrayList<>(unassigned.values());
+        placeAll(candidates, vehicles, change);
+    }
+
+    private void placeAll(List<Good> goods, Collection<String> vehicles, Change change) {
+        goods.sort((g1, g2) -> Integer.compare(g2.getWeight(), g1.getWeight()));
+        for (Good good : goods) {
+            place(good, vehicles, change);
+        }
+    }
+
+    /**
+     * Размещение товара на наименее загруженный подходящий транспорт
+     */
+    private void place(Good good, Collection<String> vehicles, Change change) {
+        String best = null;
+        int bestResidual = -1;
+        for (String vehicle : vehicles) {
+            VehicleLoadState state = states.get(vehicle);
+            if (state.canAccept(good) && state.getResidual() > bestResidual) {
+                best = vehicle;
+                bestResidual = state.getResidual();
+            }
+        }
+        if (best != null) {
+            unassigned.remove(good.getId());
+            assign(best, good, change);
+        } else {
+            markUnassigned(good);
+        }
+    }
+
+    private void assign(String vehicle, Good good, Change change) {
+        states.get(vehicle).add(good);
+        loads.get(vehicle).put(good.getId(), good);
+        vehicleOf.put(good.getId(), vehicle);
+        good.setAssigned(true);
+        if (change != null) {
+            change.recordAdd(vehicle, good);
+        }
+    }
+
+    private void unassign(String vehicle, Good good, Change change) {
+        states.get(vehicle).remove(good);
+        loads.get(vehicle).remove(good.getId());
+        vehicleOf.remove(good.getId());
+        good.setAssigned(false);
+        change.recordRemove(vehicle, good);
+    }
+
+    private void markUnassigned(Good good) {
+        good.setAssigned(false);
+        unassigned.put(good.getId(), good);
+    }
+}
@@ -0,0 +1,371 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Улучшение готового распределения локальным поиском (имитация отжига).
+ * Окрестности: перенос товара, обмен товаров между транспортами и цепочка вытеснения
+ * (нераспределенный товар вытесняет мешающий товар, который переносится в другой транспорт).
+ * Несколько независимых запусков с разными зернами выполняются в пуле потоков,
+ * выбирается лучший план по целевой функции.
+ */
+public class LocalSearchImprover {
+    private final PackingInstance instance;
+    private final ConflictIndex conflictIndex;
+    private final int targetWeight;
+    private final Objective objective;
+    private final int seeds;
+    private final long iterations;
+    private final int parallelism;
+    private final int[] family;       // Номер исходного товара для частей, -1 для целых товаров
+    private final int familyCount;
+    private final double startTemperature;
+
+    /**
+     * Целевая функция плана (минимизируется)
+     */
+    public static class Objective {
+        private final double unassignedWeight; // Штраф за килограмм нераспределенного груза
+        private final double splitPenalty;     // Штраф за каждый транспорт, в котором есть части разделенного товара
+        private final double balanceWeight;    // Штраф за отклонение загрузки от целевого веса
+
+        public Objective(double unassignedWeight, double splitPenalty, double balanceWeight) {
+            this.unassignedWeight = unassignedWeight;
+            this.splitPenalty = splitPenalty;
+            this.balanceWeight = balanceWeight;
+        }
+
+        public double getUnassignedWeight() { return unassignedWeight; }
+        public double getSplitPenalty() { return splitPenalty; }
+        public double getBalanceWeight() { return balanceWeight; }
+    }
+
+    /**
+     * Результат улучшения
+     */
+    public static class Result {
+        private final int[] assignment;
+        private final double initialCost;
+        private final double cost;
+
+        Result(int[] assignment, double initialCost, double cost) {
+            this.assignment = assignment;
+            this.initialCost = initialCost;
+            this.cost = cost;
+        }
+
+        public int[] getAssignment() { return assignment; }
+        public double getInitialCost() { return initialCost; }
+        public double getCost() { return cost; }
+    }
+
+    /**
+     * @param instance задача упаковки (все распределенные и нераспределенные товары)
+     * @param targetWeight целевой вес на каждый транспорт
+     * @param objective целевая функция
+     * @param seeds количество независимых запусков
+     * @param iterations количество итераций одного запуска
+     * @param parallelism количество потоков
+     */
+    public LocalSearchImprover(PackingInstance instance, int targetWeight, Objective objective,
+                               int seeds, long iterations, int parallelism) {
+        this.instance = instance;
+        this.targetWeight = targetWeight;
+        this.objective = objective;
+        this.seeds = Math.max(1, seeds);
+        this.iterations = iterations;
+        this.parallelism = Math.max(1, parallelism);
+
+        ConflictIndex index = null;
+        Map<String, List<Integer>> byOrigin = new HashMap<>();
+        long totalWeight = 0;
+        for (int i = 0; i < instance.size(); i++) {
+            Good good = instance.good(i);
+            if (index == null) {
+                index = good.getConflictIndex();
+            }
+            if (good.isPart()) {
+                byOrigin.computeIfAbsent(good.getOriginId(), k -> new ArrayList<>()).add(i);
+            }
+            totalWeight += good.getWeight();
+        }
+        this.conflictIndex = index;
+        this.family = new int[instance.size()];
+        Arrays.fill(family, -1);
+        int families = 0;
+        for (List<Integer> members : byOrigin.values()) {
+            if (members.size() > 1) {
+                for (int i : members) {
+                    family[i] = families;
+                }
+                families++;
+            }
+        }
+        this.familyCount = families;
+        this.startTemperature = instance.size() == 0 ? 1 : Math.max(1.0, (double) totalWeight / instance.size());
+    }
+
+    /**
+     * Запуск улучшения
+     *
+     * @param initialAssignment начальный план: номер транспорта для каждого товара, -1 если не распределен
+     * @return лучший найденный план
+     */
+    public Result improve(int[] initialAssignment) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, seeds));
+        try {
+            List<Future<Search>> futures = new ArrayList<>();
+            for (int seed = 0; seed < seeds; seed++) {
+                long searchSeed = seed;
+                futures.add(executor.submit((Callable<Search>) () -> {
+                    Search search = new Search(initialAssignment, searchSeed);
+                    search.run();
+                    return search;
+                }));
+            }
+            Search best = null;
+            for (Future<Search> future : futures) {
+                Search search = future.get();
+                if (best == null || search.bestCost < best.bestCost) {
+                    best = search;
+                }
+            }
+            return new Result(best.bestAssignment, best.initialCost, best.bestCost);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка локального поиска", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Один запуск имитации отжига со своим генератором случайных чисел и копией состояния
+     */
+    private final class Search {
+        private final Random random;
+        private final int[] assignment;
+        private final VehicleLoadState[] states;
+        private final int[][] members;     // Товары в транспорте
+        private final int[] memberCount;
+        private final int[] position;      // Позиция товара в списке транспорта или нераспределенных
+        private final int[] unassigned;
+        private int unassignedCount;
+        private final int[][] familyVehicles; // [семейство][транспорт] - количество частей
+        private double cost;
+        private final double initialCost;
+        private double bestCost;
+        private int[] bestAssignment;
+
+        Search(int[] initialAssignment, long seed) {
+            int n = instance.size();
+            int vehicleCount = instance.vehicleCount();
+            this.random = new Random(seed);
+            this.assignment = new int[n];
+            this.states = new VehicleLoadState[vehicleCount];
+            this.members = new int[vehicleCount][];
+            this.memberCount = new int[vehicleCount];
+            this.position = new int[n];
+            this.unassigned = new int[n];
+            this.familyVehicles = new int[familyCount][vehicleCount];
+            for (int v = 0; v < vehicleCount; v++) {
+                states[v] = new VehicleLoadState(instance.vehicle(v), instance.capacity(v), conflictIndex);
+                members[v] = new int[16];
+            }
+            Arrays.fill(assignment, -1);
+            for (int i = 0; i < n; i++) {
+                unassigned[unassignedCount] = i;
+                position[i] = unassignedCount++;
+            }
+            cost = costOf();
+            for (int i = 0; i < n; i++) {
+                if (initialAssignment[i] >= 0) {
+                    move(i, initialAssignment[i]);
+                }
+            }
+            this.initialCost = cost;
+            this.bestCost = cost;
+            this.bestAssignment = assignment.clone();
+        }
+
+        private double costOf() {
+            double total = 0;
+            for (int k = 0; k < unassignedCount; k++) {
+                total += objective.unassignedWeight * instance.weight(unassigned[k]);
+            }
+            for (VehicleLoadState state : states) {
+                total += objective.balanceWeight * Math.abs(state.getLoad() - targetWeight);
+            }
+            return total;
+        }
+
+        void run() {
+            if (instance.size() == 0 || instance.vehicleCount() == 0) {
+                return;
+            }
+            double cooling = Math.pow(0.001, 1.0 / Math.max(1, iterations));
+            double temperature = startTemperature;
+            for (long iteration = 0; iteration < iterations; iteration++) {
+                double before = cost;
+                double r = random.nextDouble();
+                boolean applied;
+                int[] undo;
+                if (r < 0.3 && unassignedCount > 0) {
+                    undo = ejectionChain();
+                } else if (r < 0.65) {
+                    undo = swap();
+                } else {
+                    undo = relocate();
+                }
+                applied = undo != null;
+                if (applied) {
+                    double delta = cost - before;
+                    if (delta > 0 && random.nextDouble() >= Math.exp(-delta / temperature)) {
+                        // Откат: товары возвращаются в обратном порядке
+                        for (int k = undo.length - 2; k >= 0; k -= 2) {
+                            move(undo[k], undo[k + 1]);
+                        }
+                    } else if (cost < bestCost - 1e-9) {
+                        bestCost = cost;
+                        bestAssignment = assignment.clone();
+                    }
+                }
+                temperature *= cooling;
+            }
+        }
+
+        /**
+         * Перенос случайного товара в случайный транспорт (или в нераспределенные)
+         */
+        private int[] relocate() {
+            int item = random.nextInt(instance.size());
+            int from = assignment[item];
+            int to = random.nextInt(instance.vehicleCount() + 1) - 1;
+            if (to == from || (to >= 0 && !states[to].canAccept(instance.good(item)))) {
+                return null;
+            }
+            move(item, to);
+            return new int[] { item, from };
+        }
+
+        /**
+         * Обмен двух товаров из разных транспортов
+         */
+        private int[] swap() {
+            int first = random.nextInt(instance.size());
+            int second = random.nextInt(instance.size());
+            int a = assignment[first];
+            int b = assignment[second];
+            if (a < 0 || b < 0 || a == b) {
+                return null;
+            }
+            move(first, -1);
+            move(second, -1);
+            if (states[b].canAccept(instance.good(first)) && states[a].canAccept(instance.good(second))) {
+                move(first, b);
+                move(second, a);
+                return new int[] { first, a, second, b, first, -1, second, -1 };
+            }
+            move(second, b);
+            move(first, a);
+            return null;
+        }
+
+        /**
+         * Цепочка вытеснения: нераспределенный товар занимает место товара,
+         * который переносится в другой транспорт или становится нераспределенным
+         */
+        private int[] ejectionChain() {
+            int item = unassigned[random.nextInt(unassignedCount)];
+            Good good = instance.good(item);
+            int vehicle = random.nextInt(instance.vehicleCount());
+            if (states[vehicle].canAccept(good)) {
+                move(item, vehicle);
+                return new int[] { item, -1 };
+            }
+            if (memberCount[vehicle] == 0) {
+                return null;
+            }
+            int ejected = members[vehicle][random.nextInt(memberCount[vehicle])];
+            move(ejected, -1);
+            if (!states[vehicle].canAccept(good)) {
+                move(ejected, vehicle);
+                return null;
+            }
+            move(item, vehicle);
+            int target = random.nextInt(instance.vehicleCount());
+            if (target != vehicle && states[target].canAccept(instance.good(ejected))) {
+                move(ejected, target);
+                return new int[] { ejected, vehicle, item, -1, ejected, -1 };
+            }
+            return new int[] { ejected, vehicle, item, -1 };
+        }
+
+        /**
+         * Перемещение товара без проверок с инкрементальным пересчетом целевой функции
+         */
+        private void move(int item, int to) {
+            int from = assignment[item];
+            Good good = instance.good(item);
+            int weight = good.getWeight();
+            if (from >= 0) {
+                cost -= objective.balanceWeight * Math.abs(states[from].getLoad() - targetWeight);
+                states[from].remove(good);
+                cost += objective.balanceWeight * Math.abs(states[from].getLoad() - targetWeight);
+                removeFrom(members[from], memberCount, from, item);
+                updateFamily(item, from, -1);
+            } else {
+                cost -= objective.unassignedWeight * weight;
+                int last = unassigned[--unassignedCount];
+                unassigned[position[item]] = last;
+                position[last] = position[item];
+            }
+            if (to >= 0) {
+                cost -= objective.balanceWeight * Math.abs(states[to].getLoad() - targetWeight);
+                states[to].add(good);
+                cost += objective.balanceWeight * Math.abs(states[to].getLoad() - targetWeight);
+                if (memberCount[to] == members[to].length) {
+                    members[to] = Arrays.copyOf(members[to], members[to].length * 2);
+                }
+                position[item] = memberCount[to];
+                members[to][memberCount[to]++] = item;
+                updateFamily(item, to, 1);
+            } else {
+                cost += objective.unassignedWeight * weight;
+                position[item] = unassignedCount;
+                unassigned[unassignedCount++] = item;
+            }
+            assignment[item] = to;
+        }
+
+        private void removeFrom(int[] list, int[] counts, int vehicle, int item) {
+            int last = list[--counts[vehicle]];
+            list[position[item]] = last;
+            position[last] = position[item];
+        }
+
+        private void updateFamily(int item, int vehicle, int change) {
+            int f = family[item];
+            if (f < 0) {
+                return;
+            }
+            int before = familyVehicles[f][vehicle];
+            familyVehicles[f][vehicle] += change;
+            // Штраф начисляется за каждый транспорт, в котором есть части товара
+            if (before == 0 && change > 0) {
+                cost += objective.splitPenalty;
+            } else if (before + change == 0 && change < 0) {
+                cost -= objective.splitPenalty;
+            }
+        }
+    }
+}
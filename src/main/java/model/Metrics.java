@@ -0,0 +1,191 @@
+package model;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Реестр метрик процесса: счетчики, показатели (значения, вычисляемые при чтении)
+ * и гистограммы задержек. Метрики общие для всех агентов процесса и создаются
+ * при первом обращении по имени, поэтому код, который их пишет, не требует настройки.
+ * Имена иерархические через точку: algorithm.*, model.*, server.*.
+ *
+ * Метрики доступны через JMX (MBean distribution:type=Metrics) и в текстовом виде
+ * (команда metrics серверного агента).
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "distribution:type=Metrics";
+    private static final Logger logger = Logger.getLogger(Metrics.class.getName());
+
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, Boolean> registered = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Регистрация показателя (заменяет ранее зарегистрированный с тем же именем)
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Запись времени, прошедшего с момента start (System.nanoTime()), в гистограмму
+     */
+    public static void time(String name, long start) {
+        histogram(name).recordSince(start);
+    }
+
+    /**
+     * Снимок всех значений: счетчики и показатели по имени, гистограммы -
+     * name.count, name.mean, name.p50, name.p90, name.p99, name.max (в микросекундах)
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> values.put(name, readGauge(gauge)));
+        histograms.forEach((name, histogram) -> {
+            values.put(name + ".count", histogram.getCount());
+            values.put(name + ".mean", histogram.getMean() / 1000);
+            values.put(name + ".p50", histogram.getPercentile(0.50) / 1000);
+            values.put(name + ".p90", histogram.getPercentile(0.90) / 1000);
+            values.put(name + ".p99", histogram.getPercentile(0.99) / 1000);
+            values.put(name + ".max", histogram.getMax() / 1000);
+        });
+        return values;
+    }
+
+    /**
+     * Текстовое представление для операторов
+     *
+     * @param prefix префикс имен или пустая строка для всех метрик
+     */
+    public static String format(String prefix) {
+        StringBuilder sb = new StringBuilder();
+        counters.forEach((name, counter) -> {
+            if (name.startsWith(prefix)) {
+                sb.append(name).append(" = ").append(counter.sum()).append('\n');
+            }
+        });
+        gauges.forEach((name, gauge) -> {
+            if (name.startsWith(prefix)) {
+                sb.append(name).append(" = ").append(readGauge(gauge)).append('\n');
+            }
+        });
+        histograms.forEach((name, histogram) -> {
+            if (name.startsWith(prefix) && histogram.getCount() > 0) {
+                sb.append(name).append(": count=").append(histogram.getCount())
+                        .append(" mean=").append(histogram.getMean() / 1000)
+                        .append(" p50=").append(histogram.getPercentile(0.50) / 1000)
+                        .append(" p99=").append(histogram.getPercentile(0.99) / 1000)
+                        .append(" max=").append(histogram.getMax() / 1000).append(" мкс\n");
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Регистрация MBean в платформенном MBeanServer (повторные вызовы ничего не делают)
+     */
+    public static void registerMBean() {
+        if (registered.putIfAbsent(OBJECT_NAME, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            logger.warning("Не удалось зарегистрировать метрики в JMX: " + e.getMessage());
+        }
+    }
+
+    private static long readGauge(LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Динамический MBean: атрибут на каждое значение снимка (только чтение)
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Метрики доступны только для чтения: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Long value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : snapshot().keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", name, true, false, false));
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Метрики распределения товаров",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковое распределение товаров: каждый поступающий товар сразу размещается
+ * на открытый транспорт по правилу Best Fit (транспорт с наименьшим остатком
+ * грузоподъемности, на который товар помещается и с грузом которого совместим).
+ * Проверка транспорта выполняется за O(1) по VehicleLoadState, поэтому время
+ * решения зависит только от количества открытого транспорта.
+ *
+ * Решения окончательны: товары не делятся на части и не перемещаются.
+ * Транспорт, остаток которого не превышает порога закрытия, закрывается и больше
+ * не рассматривается. Несовместимость, объявленная новым товаром с уже размещенным,
+ * учитывается для всех следующих решений.
+ *
+ * Методы синхронизированы, поэтому товары можно передавать из нескольких потоков.
+ */
+public class OnlineAssigner {
+    /**
+     * Решение по товару
+     */
+    public static class Decision {
+        private final Good good;
+        private final String vehicle;
+        private final String reason;
+        private final boolean sealed;
+        private final long latencyNanos;
+
+        Decision(Good good, String vehicle, String reason, boolean sealed, long latencyNanos) {
+            this.good = good;
+            this.vehicle = vehicle;
+            this.reason = reason;
+            this.sealed = sealed;
+            this.latencyNanos = latencyNanos;
+        }
+
+        public Good getGood() { return good; }
+        // Транспорт или null, если товар не размещен
+        public String getVehicle() { return vehicle; }
+        // Причина отказа (для размещенного товара null)
+        public String getReason() { return reason; }
+        // Транспорт закрыт после размещения этого товара
+        public boolean isSealed() { return sealed; }
+        public long getLatencyNanos() { return latencyNanos; }
+        public boolean isAssigned() { return vehicle != null; }
+    }
+
+    private final ConflictIndex conflictIndex = new ConflictIndex();
+    private final List<VehicleLoadState> open = new ArrayList<>();
+    private final Map<String, List<Good>> distribution = new LinkedHashMap<>();
+    private final Map<String, Good> unassigned = new LinkedHashMap<>();
+    private final Map<String, String> vehicleOf = new HashMap<>();
+    private final int sealThreshold;
+    private long decisions;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param vehicleCapacities грузоподъемности транспорта
+     * @param sealThreshold остаток грузоподъемности, при котором транспорт закрывается
+     */
+    public OnlineAssigner(Map<String, Integer> vehicleCapacities, int sealThreshold) {
+        this.sealThreshold = Math.max(0, sealThreshold);
+        for (Map.Entry<String, Integer> entry : vehicleCapacities.entrySet()) {
+            open.add(new VehicleLoadState(entry.getKey(), entry.getValue(), conflictIndex));
+            distribution.put(entry.getKey(), new ArrayList<>());
+        }
+    }
+
+    /**
+     * Размещение одного товара
+     */
+    public synchronized Decision offer(Good good) {
+        long start = System.nanoTime();
+        Decision decision = decide(good, start);
+        decisions++;
+        long latency = decision.getLatencyNanos();
+        totalLatencyNanos += latency;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        return decision;
+    }
+
+    /**
+     * Размещение пакета товаров: внутри пакета тяжелые товары размещаются первыми,
+     * что уменьшает фрагментацию остатков по сравнению с порядком поступления
+     */
+    public synchronized List<Decision> offerAll(List<Good> batch) {
+        List<Good> sorted = new ArrayList<>(batch);
+        sorted.sort((g1, g2) -> Integer.compare(g2.getWeight(), g1.getWeight()));
+        List<Decision> result = new ArrayList<>(sorted.size());
+        for (Good good : sorted) {
+            result.add(offer(good));
+        }
+        return result;
+    }
+
+    private Decision decide(Good good, long start) {
+        if (vehicleOf.containsKey(good.getId()) || unassigned.containsKey(good.getId())) {
+            return new Decision(good, null, "Товар " + good.getId() + " уже получен", false, System.nanoTime() - start);
+        }
+        int id = conflictIndex.register(good);
+        if (good.getIncompatibilities() != null) {
+            for (String incompatibility : good.getIncompatibilities()) {
+                int other = conflictIndex.intern(incompatibility);
+                for (VehicleLoadState state : open) {
+                    state.linkConflict(id, other);
+                }
+            }
+        }
+
+        // Best Fit: наименьший остаток после размещения
+        int bestIndex = -1;
+        int bestResidual = Integer.MAX_VALUE;
+        for (int i = 0; i < open.size(); i++) {
+            VehicleLoadState state = open.get(i);
+            if (state.canAccept(good) && state.getResidual() - good.getWeight() < bestResidual) {
+                bestIndex = i;
+                bestResidual = state.getResidual() - good.getWeight();
+            }
+        }
+        if (bestIndex < 0) {
+            good.setAssigned(false);
+            unassigned.put(good.getId(), good);
+            String reason = open.isEmpty() ? "Весь транспорт закрыт" : "Нет подходящего транспорта";
+            return new Decision(good, null, reason, false, System.nanoTime() - start);
+        }
+        VehicleLoadState state = open.get(bestIndex);
+        state.add(good);
+        good.setAssigned(true);
+        distribution.get(state.getVehicle()).add(good);
+        vehicleOf.put(good.getId(), state.getVehicle());
+        boolean sealed = state.getResidual() <= sealThreshold;
+        if (sealed) {
+            open.remove(bestIndex);
+        }
+        return new Decision(good, state.getVehicle(), null, sealed, System.nanoTime() - start);
+    }
+
+    // Геттеры
+    public synchronized Map<String, List<Good>> getDistribution() {
+        Map<String, List<Good>> copy = new HashMap<>();
+        distribution.forEach((vehicle, goods) -> copy.put(vehicle, new ArrayList<>(goods)));
+        return copy;
+    }
+
+    public synchronized List<Good> getUnassignedGoods() {
+        return new ArrayList<>(unassigned.values());
+    }
+
+    public synchronized int getOpenVehicles() {
+        return open.size();
+    }
+
+    public synchronized long getDecisions() {
+        return decisions;
+    }
+
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public synchronized long getMeanLatencyNanos() {
+        return decisions > 0 ? totalLatencyNanos / decisions : 0;
+    }
+}
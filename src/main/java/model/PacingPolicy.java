@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Политика темпа выполнения алгоритма распределения.
+ * В рабочем режиме алгоритм выполняется без задержек, а демонстрационный
+ * темп обеспечивается воспроизведением журнала событий на стороне сервера.
+ */
+public interface PacingPolicy {
+    /**
+     * Режим без задержек (по умолчанию)
+     */
+    PacingPolicy NONE = () -> { };
+
+    /**
+     * Пауза после очередного шага алгоритма
+     */
+    void pause();
+
+    /**
+     * Политика с фиксированной задержкой после каждого шага
+     *
+     * @param millis задержка в миллисекундах
+     * @return политика темпа
+     */
+    static PacingPolicy fixedDelay(long millis) {
+        if (millis <= 0) {
+            return NONE;
+        }
+        return () -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+}
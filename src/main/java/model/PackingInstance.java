@@ -0,0 +1,86 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактное представление задачи упаковки с конфликтами для решателей:
+ * веса товаров, грузоподъемности транспорта и списки смежности графа
+ * несовместимостей на уровне отдельных товаров.
+ * После построения экземпляр не изменяется и может использоваться из нескольких потоков.
+ */
+public class PackingInstance {
+    private final Good[] goods;
+    private final int[] weights;
+    private final String[] vehicles;
+    private final int[] capacities;
+    private final int[][] neighbors;
+
+    /**
+     * @param goods товары (должны быть зарегистрированы в индексе несовместимостей)
+     * @param vehicles имена транспорта
+     * @param vehicleCapacities грузоподъемности транспорта
+     */
+    public PackingInstance(List<Good> goods, List<String> vehicles, Map<String, Integer> vehicleCapacities) {
+        this.goods = goods.toArray(new Good[0]);
+        this.weights = new int[this.goods.length];
+        for (int i = 0; i < this.goods.length; i++) {
+            weights[i] = this.goods[i].getWeight();
+        }
+        this.vehicles = vehicles.toArray(new String[0]);
+        this.capacities = new int[this.vehicles.length];
+        for (int v = 0; v < this.vehicles.length; v++) {
+            capacities[v] = vehicleCapacities.get(this.vehicles[v]);
+        }
+        this.neighbors = buildNeighbors(this.goods);
+    }
+
+    private static int[][] buildNeighbors(Good[] goods) {
+        // Группировка товаров по базовому идентификатору
+        Map<Integer, List<Integer>> byConflictId = new HashMap<>();
+        ConflictIndex index = null;
+        for (int i = 0; i < goods.length; i++) {
+            if (goods[i].getConflictId() >= 0) {
+                byConflictId.computeIfAbsent(goods[i].getConflictId(), k -> new ArrayList<>()).add(i);
+                if (index == null) {
+                    index = goods[i].getConflictIndex();
+                }
+            }
+        }
+        int[][] neighbors = new int[goods.length][];
+        for (int i = 0; i < goods.length; i++) {
+            List<Integer> adjacent = new ArrayList<>();
+            int id = goods[i].getConflictId();
+            if (index != null && id >= 0) {
+                BitSet row = index.row(id);
+                for (int other = row.nextSetBit(0); other >= 0; other = row.nextSetBit(other + 1)) {
+                    List<Integer> group = byConflictId.get(other);
+                    if (group != null) {
+                        for (int j : group) {
+                            if (j != i) {
+                                adjacent.add(j);
+                            }
+                        }
+                    }
+                }
+            }
+            neighbors[i] = adjacent.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return neighbors;
+    }
+
+    public int size() { return goods.length; }
+    public int vehicleCount() { return vehicles.length; }
+    public Good good(int i) { return goods[i]; }
+    public int weight(int i) { return weights[i]; }
+    public String vehicle(int v) { return vehicles[v]; }
+    public int capacity(int v) { return capacities[v]; }
+
+    /**
+     * Товары, несовместимые с указанным
+     */
+    public int[] neighbors(int i) { return neighbors[i]; }
+}
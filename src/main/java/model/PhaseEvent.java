@@ -0,0 +1,32 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: этап алгоритма распределения (построение индекса, сортировка,
+ * первичное распределение, проверка совместимости, разделение, улучшение).
+ * Длительность события - время этапа.
+ */
+@Name("distribution.Phase")
+@Label("Distribution Phase")
+@Category({"Distribution", "Algorithm"})
+@Description("Этап алгоритма распределения товаров")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Goods")
+    int goods;
+
+    @Label("Vehicles")
+    int vehicles;
+}
@@ -0,0 +1,42 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменение исходных данных готового плана: добавленные и удаленные товары,
+ * добавленный и выведенный транспорт. Передается агенту-модели в формате JSON
+ * (сообщение "DELTA:").
+ */
+public class PlanDelta {
+    private List<Good> addGoods = new ArrayList<>();
+    private List<String> removeGoods = new ArrayList<>();   // id товаров или исходных товаров (вместе со всеми частями)
+    private List<Integer> addVehicles = new ArrayList<>();  // Грузоподъемности нового транспорта
+    private List<String> removeVehicles = new ArrayList<>(); // Имена выводимого транспорта
+
+    // Геттеры (поля могут отсутствовать в JSON)
+    public List<Good> getAddGoods() { return addGoods != null ? addGoods : List.of(); }
+    public List<String> getRemoveGoods() { return removeGoods != null ? removeGoods : List.of(); }
+    public List<Integer> getAddVehicles() { return addVehicles != null ? addVehicles : List.of(); }
+    public List<String> getRemoveVehicles() { return removeVehicles != null ? removeVehicles : List.of(); }
+
+    public void addGood(Good good) { addGoods.add(good); }
+    public void removeGood(String id) { removeGoods.add(id); }
+    public void addVehicle(int capacity) { addVehicles.add(capacity); }
+    public void removeVehicle(String name) { removeVehicles.add(name); }
+
+    public boolean isEmpty() {
+        return getAddGoods().isEmpty() && getRemoveGoods().isEmpty()
+                && getAddVehicles().isEmpty() && getRemoveVehicles().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "PlanDelta{" +
+                "addGoods=" + getAddGoods().size() +
+                ", removeGoods=" + getRemoveGoods().size() +
+                ", addVehicles=" + getAddVehicles().size() +
+                ", removeVehicles=" + getRemoveVehicles().size() +
+                '}';
+    }
+}
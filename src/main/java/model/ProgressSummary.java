@@ -0,0 +1,59 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводка хода распределения, отправляемая серверу вместо отдельных сообщений
+ * о каждом событии: счетчики по типам событий, текущая загрузка транспорта
+ * и последние назначения.
+ */
+public class ProgressSummary {
+    private long sequence;
+    private Map<String, Integer> counts = new LinkedHashMap<>();
+    private Map<String, Integer> vehicleLoads = new LinkedHashMap<>();
+    private List<String> recent = new ArrayList<>();
+    private int dropped; // События, не вошедшие в список последних
+    private boolean last;
+
+    public ProgressSummary() {
+    }
+
+    public ProgressSummary(long sequence, Map<String, Integer> counts, Map<String, Integer> vehicleLoads,
+                           List<String> recent, int dropped, boolean last) {
+        this.sequence = sequence;
+        this.counts = new LinkedHashMap<>(counts);
+        this.vehicleLoads = new LinkedHashMap<>(vehicleLoads);
+        this.recent = new ArrayList<>(recent);
+        this.dropped = dropped;
+        this.last = last;
+    }
+
+    // Геттеры
+    public long getSequence() { return sequence; }
+    public Map<String, Integer> getCounts() { return counts; }
+    public Map<String, Integer> getVehicleLoads() { return vehicleLoads; }
+    public List<String> getRecent() { return recent; }
+    public int getDropped() { return dropped; }
+    public boolean isLast() { return last; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Прогресс: ");
+        sb.append("назначено ").append(counts.getOrDefault(DistributionEvent.Type.ASSIGNMENT.name(), 0))
+                .append(", разделено ").append(counts.getOrDefault(DistributionEvent.Type.SPLIT.name(), 0))
+                .append(", не распределено ").append(counts.getOrDefault(DistributionEvent.Type.UNASSIGNED.name(), 0));
+        if (!vehicleLoads.isEmpty()) {
+            sb.append("; загрузка: ").append(vehicleLoads);
+        }
+        for (String message : recent) {
+            sb.append("\n  ").append(message);
+        }
+        if (dropped > 0) {
+            sb.append("\n  ... и еще ").append(dropped).append(" событий");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,363 @@
+package model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Журнал запусков распределения: каждый запуск (и каждое изменение плана) добавляется
+ * в конец журнала компактной записью JSON в одну строку - номер запуска, время,
+ * хэш исходных данных, план, нераспределенные товары и длительности этапов.
+ *
+ * Запись выполняется отдельным потоком через FileChannel, поэтому агент-модель
+ * только ставит запись в очередь и сразу получает номер запуска. Записи хранятся
+ * в сегментах runs-NNNNNN.log; при превышении размера сегмента начинается новый.
+ * Файл runs.idx содержит по строке на запись: положение в сегменте и краткие сведения,
+ * поэтому список запусков и чтение записи по номеру не требуют просмотра сегментов.
+ *
+ * Журнал общий для всех агентов процесса, работающих с одним каталогом.
+ */
+public class RunJournal {
+    public static final String DEFAULT_DIRECTORY = "journal";
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    private static final String INDEX_FILE = "runs.idx";
+    private static final Logger logger = Logger.getLogger(RunJournal.class.getName());
+    private static final Gson GSON = new Gson();
+    // Товары сериализуются так же, как в результатах распределения (только поля с @Expose)
+    private static final Gson RECORD_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+    private static final Map<Path, RunJournal> OPEN = new ConcurrentHashMap<>();
+
+    /**
+     * Запуск, передаваемый в журнал. Коллекции не должны изменяться после передачи.
+     */
+    public static class Run {
+        private final String job;
+        private final String kind;
+        private final Map<String, List<Good>> distribution;
+        private final List<Good> unassignedGoods;
+        private List<Good> goods;
+        private Map<String, Integer> vehicleCapacities;
+        private DistributionOptions options;
+        private Map<String, Long> timings = new LinkedHashMap<>();
+
+        /**
+         * @param job имя агента-модели
+         * @param kind вид записи: distribution (полное распределение) или update (изменение плана)
+         * @param distribution план
+         * @param unassignedGoods нераспределенные товары
+         */
+        public Run(String job, String kind, Map<String, List<Good>> distribution, List<Good> unassignedGoods) {
+            this.job = job;
+            this.kind = kind;
+            this.distribution = distribution;
+            this.unassignedGoods = unassignedGoods;
+        }
+
+        /**
+         * Исходные данные для хэша (тот же ключ, что у кэша результатов)
+         */
+        public void setInputs(List<Good> goods, Map<String, Integer> vehicleCapacities, DistributionOptions options) {
+            this.goods = goods;
+            this.vehicleCapacities = vehicleCapacities;
+            this.options = options;
+        }
+
+        /**
+         * Длительности этапов, мкс
+         */
+        public void setTimings(Map<String, Long> timings) {
+            this.timings = timings;
+        }
+    }
+
+    /**
+     * Строка индекса: положение записи и сведения для списка запусков
+     */
+    public static class Entry {
+        private long run;
+        private long timestamp;
+        private String job;
+        private String kind;
+        private String inputsHash;
+        private int vehicles;
+        private int goods;
+        private int unassigned;
+        private int segment;
+        private long offset;
+        private int length;
+
+        public long getRun() { return run; }
+        public long getTimestamp() { return timestamp; }
+        public String getJob() { return job; }
+        public String getKind() { return kind; }
+        public String getInputsHash() { return inputsHash; }
+        public int getVehicles() { return vehicles; }
+        public int getGoods() { return goods; }
+        public int getUnassigned() { return unassigned; }
+
+        @Override
+        public String toString() {
+            return "run-" + run + " " + kind + " " + job +
+                    ", транспорт: " + vehicles + ", товаров: " + goods + ", не распределено: " + unassigned +
+                    (inputsHash != null ? ", данные " + inputsHash.substring(0, 12) : "");
+        }
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Map<Long, Entry> index = new LinkedHashMap<>();
+    private final AtomicLong nextRun;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ExecutorService writer;
+    // Используются только потоком записи
+    private FileChannel segmentChannel;
+    private FileChannel indexChannel;
+    private int segment;
+
+    private RunJournal(Path directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        long lastRun = 0;
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry;
+                    try {
+                        entry = GSON.fromJson(line, Entry.class);
+                    } catch (JsonParseException e) {
+                        // Незавершенная строка после аварийной остановки
+                        logger.warning("Пропущена поврежденная строка индекса журнала: " + e.getMessage());
+                        continue;
+                    }
+                    if (entry != null) {
+                        index.put(entry.run, entry);
+                        lastRun = Math.max(lastRun, entry.run);
+                        segment = Math.max(segment, entry.segment);
+                    }
+                }
+            }
+        }
+        nextRun = new AtomicLong(lastRun + 1);
+        segment = Math.max(1, segment);
+        indexChannel = FileChannel.open(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentChannel = openSegment(segment);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "run-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("journal.pending", pending::get);
+    }
+
+    /**
+     * Журнал в каталоге (открывается один раз на процесс)
+     *
+     * @param directory каталог журнала
+     * @param segmentSize размер сегмента, байт
+     */
+    public static RunJournal open(String directory, long segmentSize) throws IOException {
+        Path path = Paths.get(directory).toAbsolutePath().normalize();
+        try {
+            return OPEN.computeIfAbsent(path, p -> {
+                try {
+                    RunJournal journal = new RunJournal(p, Math.max(1, segmentSize));
+                    try {
+                        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "run-journal-close"));
+                    } catch (IllegalStateException e) {
+                        // JVM уже завершается: запись выполняется, пока работает поток журнала
+                        logger.warning("Журнал запусков открыт во время завершения JVM");
+                    }
+                    return journal;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Номер запуска в виде "run-42" или "42"
+     *
+     * @return номер или -1, если строка не является номером запуска
+     */
+    public static long parseRunId(String value) {
+        String number = value.startsWith("run-") ? value.substring(4) : value;
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Постановка запуска в очередь записи
+     *
+     * @return номер запуска
+     */
+    public long append(Run run) {
+        long id = nextRun.getAndIncrement();
+        long timestamp = System.currentTimeMillis();
+        pending.incrementAndGet();
+        writer.execute(() -> {
+            try {
+                write(id, timestamp, run);
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Ошибка записи запуска run-" + id + " в журнал: " + e.getMessage());
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+        return id;
+    }
+
+    private void write(long id, long timestamp, Run run) throws IOException {
+        long start = System.nanoTime();
+        String inputsHash = run.goods != null
+                ? DistributionCache.key(run.goods, run.vehicleCapacities, run.options) : null;
+        JsonObject record = new JsonObject();
+        record.addProperty("run", id);
+        record.addProperty("timestamp", timestamp);
+        record.addProperty("job", run.job);
+        record.addProperty("kind", run.kind);
+        record.addProperty("inputsHash", inputsHash);
+        record.add("timings", GSON.toJsonTree(run.timings));
+        record.add("plan", RECORD_GSON.toJsonTree(run.distribution));
+        record.add("unassigned", RECORD_GSON.toJsonTree(run.unassignedGoods));
+        byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+
+        if (segmentChannel.size() > 0 && segmentChannel.size() + bytes.length > segmentSize) {
+            segmentChannel.close();
+            segment++;
+            segmentChannel = openSegment(segment);
+            logger.info("Журнал запусков: начат сегмент " + segmentName(segment));
+        }
+        Entry entry = new Entry();
+        entry.run = id;
+        entry.timestamp = timestamp;
+        entry.job = run.job;
+        entry.kind = run.kind;
+        entry.inputsHash = inputsHash;
+        entry.vehicles = run.distribution.size();
+        entry.goods = run.distribution.values().stream().mapToInt(List::size).sum() + run.unassignedGoods.size();
+        entry.unassigned = run.unassignedGoods.size();
+        entry.segment = segment;
+        entry.offset = segmentChannel.size();
+        entry.length = bytes.length;
+        writeFully(segmentChannel, bytes);
+        // Строка индекса пишется после записи: индекс не ссылается на незаписанные данные
+        writeFully(indexChannel, (GSON.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        synchronized (this) {
+            index.put(id, entry);
+        }
+        Metrics.time("journal.append", start);
+    }
+
+    /**
+     * Последние запуски (от старых к новым)
+     *
+     * @param limit максимальное количество
+     */
+    public synchronized List<Entry> list(int limit) {
+        List<Entry> entries = new ArrayList<>(index.values());
+        return new ArrayList<>(entries.subList(Math.max(0, entries.size() - limit), entries.size()));
+    }
+
+    public synchronized Entry find(long run) {
+        return index.get(run);
+    }
+
+    /**
+     * Чтение записи запуска
+     *
+     * @return JSON записи или null, если запуск не найден (или еще не записан)
+     */
+    public String read(long run) throws IOException {
+        Entry entry = find(run);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        try (FileChannel channel = FileChannel.open(directory.resolve(segmentName(entry.segment)), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new IOException("Запись run-" + run + " обрезана");
+                }
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Количество запусков, ожидающих записи
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Запись оставшихся в очереди запусков и закрытие файлов
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Журнал запусков закрыт до записи всех запусков: " + pending.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segmentChannel.force(false);
+            segmentChannel.close();
+            indexChannel.force(false);
+            indexChannel.close();
+        } catch (IOException e) {
+            logger.warning("Ошибка закрытия журнала запусков: " + e.getMessage());
+        }
+    }
+
+    private FileChannel openSegment(int number) throws IOException {
+        return FileChannel.open(directory.resolve(segmentName(number)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String segmentName(int number) {
+        return String.format("runs-%06d.log", number);
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: решение по несовместимому товару (разделен или размещается целиком)
+ * и количество частей, которые удалось разместить
+ */
+@Name("distribution.SplitDecision")
+@Label("Split Decision")
+@Category({"Distribution", "Algorithm"})
+@Description("Разделение несовместимого товара на части")
+@StackTrace(false)
+public class SplitDecisionEvent extends Event {
+    @Label("Good")
+    String good;
+
+    @Label("Weight")
+    int weight;
+
+    @Label("Split")
+    boolean split;
+
+    @Label("Parts")
+    int parts;
+
+    @Label("Assigned Parts")
+    int assignedParts;
+}
@@ -0,0 +1,107 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Разделение товара по остаткам грузоподъемности совместимого транспорта.
+ * Товар делится на минимальное количество частей: части заполняют транспорт
+ * с наибольшими остатками, а последняя часть размещается на транспорт с наименьшим
+ * подходящим остатком (Best Fit), чтобы большие остатки оставались другим товарам.
+ * Минимальное количество частей при этом достигается, так как k наибольших остатков
+ * дают наибольшую суммарную вместимость среди любых k транспортов.
+ *
+ * Каждая часть не легче минимального веса; количество частей не больше заданного.
+ * Если совместимой вместимости не хватает, последняя часть остается нераспределенной.
+ *
+ * Класс не имеет состояния, кроме параметров, и не изменяет состояния транспорта.
+ */
+public class SplitPlanner {
+    /**
+     * План разделения: веса частей и транспорт для каждой части (null - часть не размещается)
+     */
+    public static class Plan {
+        private final List<Integer> weights = new ArrayList<>();
+        private final List<String> vehicles = new ArrayList<>();
+
+        void add(int weight, String vehicle) {
+            weights.add(weight);
+            vehicles.add(vehicle);
+        }
+
+        public int size() { return weights.size(); }
+        public String getVehicle(int part) { return vehicles.get(part); }
+
+        public int[] getWeights() {
+            return weights.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Количество частей, для которых найден транспорт
+         */
+        public int getPlaced() {
+            return (int) vehicles.stream().filter(vehicle -> vehicle != null).count();
+        }
+    }
+
+    private final int minPartWeight;
+    private final int maxParts;
+
+    /**
+     * @param minPartWeight минимальный вес части
+     * @param maxParts максимальное количество частей товара
+     */
+    public SplitPlanner(int minPartWeight, int maxParts) {
+        this.minPartWeight = Math.max(1, minPartWeight);
+        this.maxParts = Math.max(1, maxParts);
+    }
+
+    /**
+     * Построение плана разделения
+     *
+     * @param good товар
+     * @param states состояние загрузки транспорта
+     * @return план; одна часть означает, что товар не делится
+     */
+    public Plan plan(Good good, Collection<VehicleLoadState> states) {
+        List<VehicleLoadState> candidates = new ArrayList<>();
+        for (VehicleLoadState state : states) {
+            if (state.getResidual() >= minPartWeight && state.isCompatible(good)) {
+                candidates.add(state);
+            }
+        }
+        candidates.sort((s1, s2) -> Integer.compare(s2.getResidual(), s1.getResidual()));
+
+        Plan plan = new Plan();
+        int remaining = good.getWeight();
+        for (int i = 0; i < candidates.size() && remaining > 0; i++) {
+            VehicleLoadState state = candidates.get(i);
+            if (remaining <= state.getResidual()) {
+                // Последняя часть: транспорт с наименьшим остатком, в который она помещается
+                int best = i;
+                while (best + 1 < candidates.size() && candidates.get(best + 1).getResidual() >= remaining) {
+                    best++;
+                }
+                plan.add(remaining, candidates.get(best).getVehicle());
+                remaining = 0;
+                break;
+            }
+            if (plan.size() == maxParts - 1) {
+                // Осталось место только для последней части, а она не помещается ни в один транспорт
+                break;
+            }
+            // Остаток после этой части не должен быть легче минимального веса
+            int part = Math.min(state.getResidual(), remaining - minPartWeight);
+            if (part < minPartWeight) {
+                continue;
+            }
+            plan.add(part, state.getVehicle());
+            remaining -= part;
+        }
+        if (remaining > 0) {
+            plan.add(remaining, null);
+        }
+        return plan;
+    }
+}
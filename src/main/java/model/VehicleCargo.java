@@ -0,0 +1,157 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Принятый груз транспортного агента: текущий вес, базовые id размещенных товаров
+ * и базовые id, несовместимые с грузом (с количеством товаров, которые их запрещают).
+ * Проверка пакета выполняется за O(размер пакета) независимо от объема груза.
+ * В отличие от VehicleLoadState не требует общего индекса несовместимостей,
+ * поэтому работает с товарами, полученными по сети.
+ */
+public class VehicleCargo {
+    private final int capacity;
+    private int load;
+    private final Map<String, Good> goods = new LinkedHashMap<>();
+    private final Map<String, Integer> present = new HashMap<>();   // Базовые id груза
+    private final Map<String, Integer> forbidden = new HashMap<>(); // Базовые id, несовместимые с грузом
+
+    public VehicleCargo(int capacity) {
+        this.capacity = capacity;
+    }
+
+    // Геттеры
+    public int getCapacity() { return capacity; }
+    public int getLoad() { return load; }
+    public int getResidual() { return capacity - load; }
+    public List<Good> getGoods() { return new ArrayList<>(goods.values()); }
+
+    /**
+     * Проверка пакета товаров: вместимость, совместимость с грузом и между собой
+     *
+     * @param batch пакет товаров
+     * @return причина отказа или null, если пакет может быть принят целиком
+     */
+    public String check(List<Good> batch) {
+        Batch pending = new Batch();
+        for (Good good : batch) {
+            String reason = pending.check(good);
+            if (reason != null) {
+                return reason;
+            }
+            pending.add(good);
+        }
+        return null;
+    }
+
+    /**
+     * Выбор подмножества товаров, которое можно принять вместе (жадно, в порядке списка)
+     *
+     * @param offered предложенные товары
+     * @return товары, которые можно принять
+     */
+    public List<Good> select(List<Good> offered) {
+        Batch pending = new Batch();
+        List<Good> selected = new ArrayList<>();
+        for (Good good : offered) {
+            if (pending.check(good) == null) {
+                pending.add(good);
+                selected.add(good);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Принятие пакета (без проверок, пакет должен пройти check)
+     */
+    public void commit(List<Good> batch) {
+        for (Good good : batch) {
+            goods.put(good.getId(), good);
+            load += good.getWeight();
+            present.merge(good.normalizeId(good.getId()), 1, Integer::sum);
+            for (String incompatibility : incompatibilitiesOf(good)) {
+                forbidden.merge(incompatibility, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Снятие товара с транспорта
+     *
+     * @param id идентификатор товара
+     * @return true, если товар был в грузе
+     */
+    public boolean release(String id) {
+        Good good = goods.remove(id);
+        if (good == null) {
+            return false;
+        }
+        load -= good.getWeight();
+        decrement(present, good.normalizeId(good.getId()));
+        for (String incompatibility : incompatibilitiesOf(good)) {
+            decrement(forbidden, incompatibility);
+        }
+        return true;
+    }
+
+    /**
+     * Снятие всего груза
+     */
+    public void clear() {
+        goods.clear();
+        present.clear();
+        forbidden.clear();
+        load = 0;
+    }
+
+    private static void decrement(Map<String, Integer> counts, String key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static List<String> incompatibilitiesOf(Good good) {
+        return good.getIncompatibilities() != null ? good.getIncompatibilities() : List.of();
+    }
+
+    /**
+     * Товары, проверяемые вместе с грузом, но еще не принятые
+     */
+    private final class Batch {
+        private final Set<String> ids = new HashSet<>();
+        private final Set<String> batchPresent = new HashSet<>();
+        private final Set<String> batchForbidden = new HashSet<>();
+        private int weight;
+
+        String check(Good good) {
+            if (goods.containsKey(good.getId()) || ids.contains(good.getId())) {
+                return "Товар " + good.getId() + " уже принят";
+            }
+            if (load + weight + good.getWeight() > capacity) {
+                return "Превышена грузоподъемность";
+            }
+            String baseId = good.normalizeId(good.getId());
+            if (forbidden.containsKey(baseId) || batchForbidden.contains(baseId)) {
+                return "Несовместимость: " + good.getId();
+            }
+            for (String incompatibility : incompatibilitiesOf(good)) {
+                if (present.containsKey(incompatibility) || batchPresent.contains(incompatibility)) {
+                    return "Несовместимость: " + good.getId();
+                }
+            }
+            return null;
+        }
+
+        void add(Good good) {
+            ids.add(good.getId());
+            weight += good.getWeight();
+            batchPresent.add(good.normalizeId(good.getId()));
+            batchForbidden.addAll(incompatibilitiesOf(good));
+        }
+    }
+}
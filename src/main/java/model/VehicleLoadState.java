@@ -0,0 +1,109 @@
+package model;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Инкрементальное состояние загрузки транспорта: текущий вес и объединение
+ * строк матрицы несовместимостей всех размещенных товаров.
+ * Проверка возможности размещения товара выполняется за O(1).
+ */
+public class VehicleLoadState {
+    private final String vehicle;
+    private final int capacity;
+    private final ConflictIndex conflictIndex;
+    private final BitSet forbidden = new BitSet(); // Базовые id, несовместимые с грузом
+    private final BitSet present = new BitSet();   // Базовые id размещенных товаров
+    private final Map<Integer, Integer> presentCounts = new HashMap<>(); // Количество товаров по базовым id
+    private int load;
+
+    public VehicleLoadState(String vehicle, int capacity, ConflictIndex conflictIndex) {
+        this.vehicle = vehicle;
+        this.capacity = capacity;
+        this.conflictIndex = conflictIndex;
+    }
+
+    // Геттеры
+    public String getVehicle() { return vehicle; }
+    public int getCapacity() { return capacity; }
+    public int getLoad() { return load; }
+    public int getResidual() { return capacity - load; }
+
+    /**
+     * Проверка грузоподъемности
+     */
+    public boolean canFit(Good good) {
+        return load + good.getWeight() <= capacity;
+    }
+
+    /**
+     * Проверка совместимости товара со всем текущим грузом
+     */
+    public boolean isCompatible(Good good) {
+        int id = good.getConflictId();
+        return id < 0 || !forbidden.get(id);
+    }
+
+    public boolean canAccept(Good good) {
+        return canFit(good) && isCompatible(good);
+    }
+
+    /**
+     * Размещение товара (без проверок)
+     */
+    public void add(Good good) {
+        load += good.getWeight();
+        int id = good.getConflictId();
+        if (id >= 0) {
+            if (presentCounts.merge(id, 1, Integer::sum) == 1) {
+                present.set(id);
+                forbidden.or(conflictIndex.row(id));
+            }
+        }
+    }
+
+    /**
+     * Учет несовместимости, добавленной в индекс после размещения груза
+     * (например, при добавлении нового товара в готовый план)
+     */
+    public void linkConflict(int first, int second) {
+        if (present.get(first)) {
+            forbidden.set(second);
+        }
+        if (present.get(second)) {
+            forbidden.set(first);
+        }
+    }
+
+    /**
+     * Есть ли в грузе товар с указанным базовым id
+     */
+    public boolean contains(int id) {
+        return id >= 0 && present.get(id);
+    }
+
+    /**
+     * Снятие товара. Множество запрещенных id пересчитывается только
+     * если с транспорта ушел последний товар с данным базовым id, и только
+     * для соседей этого id в графе несовместимостей.
+     */
+    public void remove(Good good) {
+        load -= good.getWeight();
+        int id = good.getConflictId();
+        if (id >= 0) {
+            int count = presentCounts.merge(id, -1, Integer::sum);
+            if (count <= 0) {
+                presentCounts.remove(id);
+                present.clear(id);
+                BitSet row = conflictIndex.row(id);
+                for (int other = row.nextSetBit(0); other >= 0; other = row.nextSetBit(other + 1)) {
+                    // Матрица симметрична: other запрещен, если несовместим с кем-то из оставшихся
+                    if (!conflictIndex.row(other).intersects(present)) {
+                        forbidden.clear(other);
+                    }
+                }
+            }
+        }
+    }
+}